@@ -0,0 +1,96 @@
+package jenkins.plugins.slack;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleBuild;
+import java.util.concurrent.TimeUnit;
+import jenkins.plugins.slack.logging.BuildAwareLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders the messages of a build with a large changeset and a long list of failed tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActiveNotifierBenchmark {
+
+    @Param("1000")
+    public int commits;
+
+    @Param("10000")
+    public int failedTests;
+
+    private ActiveNotifier notifier;
+    private FreeStyleBuild build;
+
+    @Setup
+    public void setUp() {
+        build = SyntheticBuilds.failedBuild(commits, failedTests);
+        notifier = new OfflineActiveNotifier(SyntheticBuilds.notifier(), SyntheticBuilds.NO_LOGGING,
+                SyntheticBuilds.tokenExpander());
+    }
+
+    @Benchmark
+    public ChangeSetSummary changeSetSummary() {
+        return ChangeSetSummary.summarize(build.getChangeSet());
+    }
+
+    @Benchmark
+    public String commitList() {
+        return notifier.getCommitList(build);
+    }
+
+    @Benchmark
+    public String changes() {
+        return notifier.getChanges(build, true);
+    }
+
+    @Benchmark
+    public String statusMessage() {
+        return notifier.getBuildStatusMessage(build, true, false, true);
+    }
+
+    @Benchmark
+    public String statusMessageWithFailedTests() {
+        return notifier.getBuildStatusMessage(build, true, true, true);
+    }
+
+    /**
+     * Leaves out the link to the build, which needs a running Jenkins to resolve.
+     */
+    private static final class OfflineActiveNotifier extends ActiveNotifier {
+        private final SlackNotifier notifier;
+        private final BuildAwareLogger log;
+        private final TokenExpander tokenExpander;
+
+        OfflineActiveNotifier(SlackNotifier notifier, BuildAwareLogger log, TokenExpander tokenExpander) {
+            super(notifier, build -> null, log, tokenExpander);
+            this.notifier = notifier;
+            this.log = log;
+            this.tokenExpander = tokenExpander;
+        }
+
+        @Override
+        MessageBuilder newMessageBuilder(AbstractBuild build) {
+            return new MessageBuilder(notifier, build, log, tokenExpander) {
+                @Override
+                public MessageBuilder appendOpenLink() {
+                    return this;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package jenkins.plugins.slack;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex and {@link MessageFormat} based escaping that {@link MessageEscaper} replaced, kept to compare against.
+ */
+final class LegacyMessageEscaper {
+
+    private static final Pattern aTag = Pattern.compile("(?i)<a([^>]+)>(.+?)</a>|([{%])");
+    private static final Pattern href = Pattern.compile("\\s*(?i)href\\s*=\\s*(\"([^\"]*\")|'[^']*'|([^'\">\\s]+))");
+
+    private LegacyMessageEscaper() {
+    }
+
+    static String escape(String string) {
+        StringBuffer pattern = new StringBuffer();
+        String[] links = extractReplaceLinks(aTag.matcher(string), pattern);
+        return MessageFormat.format(escapeCharacters(pattern.toString()), (Object[]) links);
+    }
+
+    private static String escapeCharacters(String string) {
+        string = string.replace("&", "&amp;");
+        string = string.replace("<", "&lt;");
+        string = string.replace(">", "&gt;");
+
+        return string;
+    }
+
+    private static String[] extractReplaceLinks(Matcher aTag, StringBuffer sb) {
+        int size = 0;
+        List<String> links = new ArrayList<>();
+        while (aTag.find()) {
+            String firstGroup = aTag.group(1);
+            if (firstGroup != null) {
+                Matcher url = href.matcher(firstGroup);
+                if (url.find()) {
+                    aTag.appendReplacement(sb, String.format("{%s}", size++));
+                    links.add(String.format("<%s|%s>", url.group(1).replaceAll("\"", ""), aTag.group(2)));
+                }
+            } else {
+                aTag.appendReplacement(sb, String.format("{%s}", size++));
+                links.add(aTag.group(3));
+            }
+        }
+        aTag.appendTail(sb);
+        return links.toArray(new String[size]);
+    }
+}
@@ -0,0 +1,69 @@
+package jenkins.plugins.slack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link MessageEscaper} with the escaping it replaced on the kind of text a build message is made of.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageEscaperBenchmark {
+
+    @Param({"plain", "markup", "links"})
+    public String input;
+
+    private String text;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            switch (input) {
+                case "markup":
+                    builder.append("Fix <b>race</b> in {cache} & 100% of flaky tests #").append(i).append('\n');
+                    break;
+                case "links":
+                    builder.append("See <a href=\"https://jenkins.example.com/job/app/").append(i)
+                            .append("/\">build #").append(i).append("</a> for details\n");
+                    break;
+                default:
+                    builder.append("Started by changes from someone (").append(i).append(" files)\n");
+                    break;
+            }
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyMessageEscaper.escape(text);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return MessageEscaper.escape(text);
+    }
+
+    @Benchmark
+    public int singlePassReusedBuilder() {
+        out.setLength(0);
+        MessageEscaper.escape(text, out);
+        return out.length();
+    }
+}
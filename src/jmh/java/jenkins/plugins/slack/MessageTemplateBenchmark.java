@@ -0,0 +1,95 @@
+package jenkins.plugins.slack;
+
+import com.google.common.collect.ListMultimap;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleBuild;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.tokenmacro.TokenMacro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares expanding a custom message with {@link JenkinsTokenExpander}, which evaluates its cached
+ * {@link MessageTemplate}, against {@link TokenMacro#expandAll(AbstractBuild, TaskListener, String, boolean, List)} as
+ * the plugin called it before. Without a running Jenkins no macro is installed, so both get the same macros as private
+ * tokens, and the build is a stub-only mock with a fixed environment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    @Param({"text", "tokens", "arguments"})
+    public String input;
+
+    private String template;
+    private FreeStyleBuild build;
+    private final TaskListener listener = TaskListener.NULL;
+    private final List<TokenMacro> privateTokens = Collections.singletonList(new ConstantMacro());
+    private JenkinsTokenExpander expander;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (input) {
+            case "tokens":
+                template = "Deployed ${BUILD_NUMBER} of $JOB_NAME by ${BUILD_USER} to ${ENVIRONMENT}, see $BUILD_URL";
+                break;
+            case "arguments":
+                template = "${CHANGES, showPaths=true, format=\"%a: %r %p \\n\"} ${BUILD_LOG_REGEX, regex=\"^ERROR\", maxMatches=5}";
+                break;
+            default:
+                template = "The release candidate has been deployed to staging, smoke tests are running";
+                break;
+        }
+        build = mock(FreeStyleBuild.class, withSettings().stubOnly());
+        doReturn(new EnvVars("BUILD_NUMBER", "1234", "JOB_NAME", "platform/backend", "ENVIRONMENT", "staging",
+                "BUILD_URL", "https://jenkins.example.com/job/platform/job/backend/1234/")).when(build).getEnvironment(listener);
+        doReturn(Collections.emptyMap()).when(build).getBuildVariables();
+        expander = new JenkinsTokenExpander(listener, privateTokens);
+        expander.expand(template, build);
+    }
+
+    @Benchmark
+    public String expandAll() throws Exception {
+        return TokenMacro.expandAll(build, listener, template, false, privateTokens);
+    }
+
+    @Benchmark
+    public String compiled() {
+        return expander.expand(template, build);
+    }
+
+    private static final class ConstantMacro extends TokenMacro {
+        @Override
+        public boolean acceptsMacroName(String macroName) {
+            return "BUILD_USER".equals(macroName) || "CHANGES".equals(macroName) || "BUILD_LOG_REGEX".equals(macroName);
+        }
+
+        @Override
+        public String evaluate(AbstractBuild<?, ?> context, TaskListener listener, String macroName,
+                Map<String, String> arguments, ListMultimap<String, String> argumentMultimap) {
+            return "value of " + macroName;
+        }
+    }
+}
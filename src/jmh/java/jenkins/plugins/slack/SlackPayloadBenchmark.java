@@ -0,0 +1,111 @@
+package jenkins.plugins.slack;
+
+import hudson.model.FreeStyleBuild;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import jenkins.plugins.slack.payload.SlackMessage;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.http.client.methods.HttpPost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes a rendered commit list into the request posted to Slack, as a webhook payload and as a bot user JSON body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlackPayloadBenchmark {
+
+    @Param("1000")
+    public int commits;
+
+    private String message;
+    private StandardSlackService webhook;
+    private StandardSlackService botUser;
+
+    @Setup
+    public void setUp() {
+        FreeStyleBuild build = SyntheticBuilds.failedBuild(commits, 0);
+        message = new ActiveNotifier(SyntheticBuilds.notifier(), b -> null, SyntheticBuilds.NO_LOGGING,
+                SyntheticBuilds.tokenExpander()).getCommitList(build);
+        webhook = new StandardSlackService("", "team", false, "#builds", false, "token");
+        botUser = new StandardSlackService("", "team", true, "#builds", false, "xoxb-token");
+    }
+
+    @Benchmark
+    public SlackMessage attachments() {
+        return SlackMessage.colored(message, "danger");
+    }
+
+    /**
+     * The attachments as json-lib built them before the typed payload, for comparison.
+     */
+    @Benchmark
+    public String legacyAttachments() {
+        JSONObject field = new JSONObject();
+        field.put("short", false);
+        field.put("value", message);
+        JSONArray fields = new JSONArray();
+        fields.add(field);
+        JSONObject attachment = new JSONObject();
+        attachment.put("fallback", message);
+        attachment.put("color", "danger");
+        attachment.put("fields", fields);
+        JSONArray mrkdwn = new JSONArray();
+        mrkdwn.add("pretext");
+        mrkdwn.add("text");
+        mrkdwn.add("fields");
+        attachment.put("mrkdwn_in", mrkdwn);
+        JSONArray attachments = new JSONArray();
+        attachments.add(attachment);
+        return attachments.toString();
+    }
+
+    @Benchmark
+    public long webhookPost() throws IOException {
+        return write(webhook.createPost("#builds", SlackMessage.colored(message, "danger")));
+    }
+
+    @Benchmark
+    public long botUserPost() throws IOException {
+        return write(botUser.createPost("#builds", SlackMessage.colored(message, "danger")));
+    }
+
+    /**
+     * Writes the request body the way it is sent to Slack.
+     */
+    private static long write(HttpPost post) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        post.getEntity().writeTo(out);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
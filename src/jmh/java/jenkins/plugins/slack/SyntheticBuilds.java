@@ -0,0 +1,192 @@
+package jenkins.plugins.slack;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.EditType;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import jenkins.plugins.slack.logging.BuildAwareLogger;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Builds with large changesets and many failed tests, made of stub-only mocks so that benchmarks calling them over
+ * and over do not record invocations.
+ */
+final class SyntheticBuilds {
+
+    static final BuildAwareLogger NO_LOGGING = new BuildAwareLogger() {
+        @Override
+        public void debug(String key, String message, Object... args) {
+        }
+
+        @Override
+        public void info(String key, String message, Object... args) {
+        }
+    };
+
+    private static final int AUTHORS = 50;
+    private static final int FILES = 2000;
+    private static final int FILES_PER_COMMIT = 3;
+
+    private SyntheticBuilds() {
+    }
+
+    static FreeStyleBuild failedBuild(int commits, int failedTests) {
+        FreeStyleProject project = stub(FreeStyleProject.class);
+        when(project.getFullDisplayName()).thenReturn("platform/backend/integration-tests");
+
+        FreeStyleBuild build = stub(FreeStyleBuild.class);
+        when(build.getProject()).thenReturn(project);
+        when(build.getParent()).thenReturn(project);
+        when(build.getNumber()).thenReturn(1234);
+        when(build.getDisplayName()).thenReturn("#1234");
+        when(build.getResult()).thenReturn(Result.FAILURE);
+        when(build.getDurationString()).thenReturn("12 min");
+        when(build.hasChangeSetComputed()).thenReturn(true);
+        doReturn(build).when(project).getLastBuild();
+        doReturn(new SyntheticChangeLogSet(build, entries(commits))).when(build).getChangeSet();
+
+        AbstractTestResultAction action = stub(AbstractTestResultAction.class);
+        when(action.getTotalCount()).thenReturn(failedTests * 5);
+        when(action.getFailCount()).thenReturn(failedTests);
+        when(action.getSkipCount()).thenReturn(10);
+        doReturn(failedTests(failedTests)).when(action).getFailedTests();
+        doReturn(action).when(build).getAction(AbstractTestResultAction.class);
+        return build;
+    }
+
+    static SlackNotifier notifier() {
+        SlackNotifier notifier = stub(SlackNotifier.class);
+        when(notifier.getCommitInfoChoice()).thenReturn(CommitInfoChoice.AUTHORS_AND_TITLES);
+        when(notifier.getCustomMessage()).thenReturn("Deployed by ${BUILD_USER}");
+        return notifier;
+    }
+
+    static TokenExpander tokenExpander() {
+        return (template, build) -> template;
+    }
+
+    private static List<ChangeLogSet.Entry> entries(int commits) {
+        List<User> authors = new ArrayList<>(AUTHORS);
+        for (int i = 0; i < AUTHORS; i++) {
+            User author = stub(User.class);
+            when(author.getDisplayName()).thenReturn("Developer " + i);
+            authors.add(author);
+        }
+        List<ChangeLogSet.AffectedFile> files = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            files.add(new SyntheticAffectedFile("src/main/java/com/example/module" + (i % 40) + "/Service" + i + ".java"));
+        }
+        List<ChangeLogSet.Entry> entries = new ArrayList<>(commits);
+        for (int i = 0; i < commits; i++) {
+            List<ChangeLogSet.AffectedFile> affected = new ArrayList<>(FILES_PER_COMMIT);
+            for (int f = 0; f < FILES_PER_COMMIT; f++) {
+                affected.add(files.get((i * 7 + f * 13) % FILES));
+            }
+            entries.add(new SyntheticEntry(authors.get(i % AUTHORS),
+                    "JIRA-" + (1000 + i) + " Fix <flaky> retry & {timeout} handling in 100% of the cases", affected));
+        }
+        return entries;
+    }
+
+    private static List<TestResult> failedTests(int count) {
+        List<TestResult> tests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestResult test = stub(TestResult.class);
+            when(test.getFullDisplayName())
+                    .thenReturn("com.example.module" + (i % 40) + ".Service" + (i / 20) + "Test.shouldHandleCase" + i);
+            when(test.getDurationString()).thenReturn("0.12 sec");
+            tests.add(test);
+        }
+        return tests;
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    private static final class SyntheticChangeLogSet extends ChangeLogSet<ChangeLogSet.Entry> {
+        private final List<ChangeLogSet.Entry> entries;
+
+        SyntheticChangeLogSet(FreeStyleBuild build, List<ChangeLogSet.Entry> entries) {
+            super(build, null);
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean isEmptySet() {
+            return entries.isEmpty();
+        }
+
+        @Override
+        public Iterator<ChangeLogSet.Entry> iterator() {
+            return Collections.unmodifiableList(entries).iterator();
+        }
+    }
+
+    private static final class SyntheticEntry extends ChangeLogSet.Entry {
+        private final User author;
+        private final String msg;
+        private final List<ChangeLogSet.AffectedFile> files;
+
+        SyntheticEntry(User author, String msg, List<ChangeLogSet.AffectedFile> files) {
+            this.author = author;
+            this.msg = msg;
+            this.files = files;
+        }
+
+        @Override
+        public String getMsg() {
+            return msg;
+        }
+
+        @Override
+        public User getAuthor() {
+            return author;
+        }
+
+        @Override
+        public Collection<String> getAffectedPaths() {
+            List<String> paths = new ArrayList<>(files.size());
+            for (ChangeLogSet.AffectedFile file : files) {
+                paths.add(file.getPath());
+            }
+            return paths;
+        }
+
+        @Override
+        public Collection<? extends ChangeLogSet.AffectedFile> getAffectedFiles() {
+            return files;
+        }
+    }
+
+    private static final class SyntheticAffectedFile implements ChangeLogSet.AffectedFile {
+        private final String path;
+
+        SyntheticAffectedFile(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public EditType getEditType() {
+            return EditType.EDIT;
+        }
+    }
+}
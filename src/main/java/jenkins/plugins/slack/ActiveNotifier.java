@@ -7,29 +7,22 @@ import hudson.model.Cause;
 import hudson.model.CauseAction;
 import hudson.model.Result;
 import hudson.model.Run;
-import hudson.scm.ChangeLogSet;
-import hudson.scm.ChangeLogSet.AffectedFile;
-import hudson.scm.ChangeLogSet.Entry;
 import hudson.tasks.junit.TestResultAction;
 import hudson.tasks.test.AbstractTestResultAction;
-import hudson.tasks.test.TestResult;
 import hudson.triggers.SCMTrigger;
-import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import jenkins.model.Jenkins;
+import java.util.function.Supplier;
 import jenkins.plugins.slack.decisions.Context;
 import jenkins.plugins.slack.decisions.NotificationConditions;
+import jenkins.plugins.slack.decisions.PreviousBuildIndex;
+import jenkins.plugins.slack.dispatch.NotificationCoalescer;
+import jenkins.plugins.slack.dispatch.RenderExecutor;
 import jenkins.plugins.slack.logging.BuildAwareLogger;
 import jenkins.plugins.slack.logging.BuildKey;
 import jenkins.plugins.slack.matrix.MatrixTriggerMode;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
 
@@ -55,6 +48,10 @@ public class ActiveNotifier implements FineGrainedNotifier {
         if (skipOnMatrixChildren(build)) {
             return;
         }
+        notifyStart(build, render(build, () -> getStartMessage(build)));
+    }
+
+    String getStartMessage(AbstractBuild build) {
         String key = BuildKey.format(build);
 
         CauseAction causeAction = build.getAction(CauseAction.class);
@@ -63,15 +60,14 @@ public class ActiveNotifier implements FineGrainedNotifier {
             Cause scmCause = causeAction.findCause(SCMTrigger.SCMTriggerCause.class);
             if (scmCause == null) {
                 log.debug(key, "was not caused by SCM Trigger");
-                MessageBuilder message = new MessageBuilder(notifier, build, log, tokenExpander);
+                MessageBuilder message = newMessageBuilder(build);
                 message.append(causeAction.getCauses().get(0).getShortDescription());
                 message.appendOpenLink();
                 if (notifier.getIncludeCustomMessage()) {
                   message.appendCustomMessage(build.getResult());
                 }
-                notifyStart(build, message.toString());
                 // Cause was found, exit early to prevent double-message
-                return;
+                return message.toString();
             }
         } else {
             log.debug(key, "did not have a cause action");
@@ -79,9 +75,9 @@ public class ActiveNotifier implements FineGrainedNotifier {
 
         String changes = getChanges(build, notifier.getIncludeCustomMessage());
         if (changes != null) {
-            notifyStart(build, changes);
+            return changes;
         } else {
-            notifyStart(build, getBuildStatusMessage(build, false, false, notifier.getIncludeCustomMessage()));
+            return getBuildStatusMessage(build, false, false, notifier.getIncludeCustomMessage());
         }
     }
 
@@ -107,18 +103,11 @@ public class ActiveNotifier implements FineGrainedNotifier {
         }
         AbstractProject<?, ?> project = r.getProject();
         Result result = r.getResult();
-        AbstractBuild<?, ?> previousBuild = project.getLastBuild();
-        if (null != previousBuild) {
-            do {
-                previousBuild = previousBuild.getPreviousCompletedBuild();
-            } while (previousBuild != null && previousBuild.getResult() == Result.ABORTED);
+        if (null != project.getLastBuild()) {
+            AbstractBuild<?, ?> previousBuild = PreviousBuildIndex.previousNonAbortedBuild(r);
             Result previousResult = (previousBuild != null) ? previousBuild.getResult() : Result.SUCCESS;
             if(null != previousResult && (result != null && result.isWorseThan(previousResult) || moreTestFailuresThanPreviousBuild(r, previousBuild)) && notifier.getNotifyRegression()) {
-                String message = getBuildStatusMessage(r, notifier.getIncludeTestSummary(),
-                        notifier.getIncludeFailedTests(), notifier.getIncludeCustomMessage());
-                if (notifier.getCommitInfoChoice().showAnything()) {
-                    message = message + "\n" + getCommitList(r);
-                }
+                String message = render(r, () -> getCompletedMessage(r));
                 slackFactory.apply(r).publish(message, getBuildColor(r));
             }
         }
@@ -128,31 +117,59 @@ public class ActiveNotifier implements FineGrainedNotifier {
         if (skipOnMatrixChildren(r)) {
             return;
         }
+        if (notifier.getNotifyRegression()) {
+            recordFailedTests(r);
+        }
         String key = BuildKey.format(r);
         AbstractProject<?, ?> project = r.getProject();
-        AbstractBuild<?, ?> previousBuild = project.getLastBuild();
-        if (null != previousBuild) {
-            do {
-                previousBuild = previousBuild.getPreviousCompletedBuild();
-            } while (null != previousBuild && previousBuild.getResult() == Result.ABORTED);
-            if (null != previousBuild) {
-                log.info(key, "found #%d as previous completed, non-aborted build", previousBuild.getNumber());
-            } else {
-                log.debug(key, "did not find previous completed, non-aborted build");
-            }
+        if (null != project.getLastBuild()) {
+            Context context = new Context(r);
+            log.debug(key, "comparing with %s as result of the previous completed, non-aborted build",
+                    context.previousResultOrSuccess());
 
             NotificationConditions conditions = NotificationConditions.create(notifier, log);
-            if (conditions.test(new Context(r, previousBuild))) {
-                String message = getBuildStatusMessage(r, notifier.getIncludeTestSummary(),
-                        notifier.getIncludeFailedTests(), notifier.getIncludeCustomMessage());
-                if (notifier.getCommitInfoChoice().showAnything()) {
-                    message = message + "\n" + getCommitList(r);
-                }
-                slackFactory.apply(r).publish(message, getBuildColor(r));
+            if (conditions.test(context)) {
+                String message = render(r, () -> getCompletedMessage(r));
+                publishCompleted(r, message);
             }
         }
     }
 
+    String getCompletedMessage(AbstractBuild r) {
+        String message = getBuildStatusMessage(r, notifier.getIncludeTestSummary(),
+                notifier.getIncludeFailedTests(), notifier.getIncludeCustomMessage());
+        if (notifier.getCommitInfoChoice().showAnything()) {
+            message = message + "\n" + getCommitList(r);
+        }
+        return message;
+    }
+
+    /**
+     * Renders a message off the executor thread. When it takes longer than the render budget, for instance because
+     * of a slow token macro or changelog, the bare build status is sent instead.
+     */
+    private String render(AbstractBuild r, Supplier<String> renderer) {
+        long budgetMillis = RenderExecutor.budgetMillis();
+        return RenderExecutor.render(BuildKey.format(r), renderer,
+                () -> getBuildStatusMessage(r, false, false, false) + "\n(details were not ready within "
+                        + TimeUnit.MILLISECONDS.toSeconds(budgetMillis) + " seconds)",
+                budgetMillis);
+    }
+
+    private void publishCompleted(AbstractBuild r, String message) {
+        SlackService slack = slackFactory.apply(r);
+        String color = getBuildColor(r);
+        int coalesceWindowSeconds = notifier.getCoalesceWindowSeconds();
+        if (coalesceWindowSeconds > 0) {
+            String key = r.getProject().getFullName() + "|" + StringUtils.defaultString(notifier.getRoom());
+            NotificationCoalescer.get().submit(key, TimeUnit.SECONDS.toMillis(coalesceWindowSeconds),
+                    notifier.getCoalesceMaxBatch(),
+                    new NotificationCoalescer.Event(r.getNumber(), r.getResult(), message, color, slack));
+        } else {
+            slack.publish(message, color);
+        }
+    }
+
     private boolean skipOnMatrixChildren(AbstractBuild build) {
         if (notifier.isMatrixRun(build)) {
             MatrixTriggerMode matrixTriggerMode = notifier.getMatrixTriggerMode();
@@ -162,12 +179,15 @@ public class ActiveNotifier implements FineGrainedNotifier {
     }
 
     private boolean moreTestFailuresThanPreviousBuild(AbstractBuild currentBuild, AbstractBuild<?, ?> previousBuild) {
-        if (getTestResult(currentBuild) != null && getTestResult(previousBuild) != null) {
-            if (getTestResult(currentBuild).getFailCount() > getTestResult(previousBuild).getFailCount())
+        TestResultAction currentTests = getTestResult(currentBuild);
+        TestResultAction previousTests = previousBuild != null ? getTestResult(previousBuild) : null;
+        if (currentTests != null && previousTests != null) {
+            if (currentTests.getFailCount() > previousTests.getFailCount())
                 return true;
 
             // test if different tests failed.
-            return !getFailedTestIds(currentBuild).equals(getFailedTestIds(previousBuild));
+            return !FailedTestsFingerprint.of(currentBuild, currentTests)
+                    .sameFailures(FailedTestsFingerprint.of(previousBuild, previousTests));
         }
         return false;
     }
@@ -176,14 +196,15 @@ public class ActiveNotifier implements FineGrainedNotifier {
         return build.getAction(TestResultAction.class);
     }
 
-    private Set<String> getFailedTestIds(AbstractBuild currentBuild) {
-        Set<String> failedTestIds = new HashSet<>();
-        List<? extends TestResult> failedTests = getTestResult(currentBuild).getFailedTests();
-        for(TestResult result : failedTests) {
-            failedTestIds.add(result.getId());
+    /**
+     * Stores the failed tests of a completing build with it, so the next build can check for regressions without
+     * loading its test reports.
+     */
+    private void recordFailedTests(AbstractBuild build) {
+        TestResultAction tests = getTestResult(build);
+        if (tests != null) {
+            FailedTestsFingerprint.record(build, tests);
         }
-
-        return failedTestIds;
     }
 
     String getChanges(AbstractBuild r, boolean includeCustomMessage) {
@@ -192,30 +213,17 @@ public class ActiveNotifier implements FineGrainedNotifier {
             log.debug(key, "did not have change set computed");
             return null;
         }
-        ChangeLogSet changeSet = r.getChangeSet();
-        List<Entry> entries = new LinkedList<>();
-        Set<AffectedFile> files = new HashSet<>();
-        for (Object o : changeSet.getItems()) {
-            Entry entry = (Entry) o;
-            log.debug(key, "adding changeset entry: %s", o);
-            entries.add(entry);
-            if (CollectionUtils.isNotEmpty(entry.getAffectedFiles())) {
-                files.addAll(entry.getAffectedFiles());
-            }
-        }
-        if (entries.isEmpty()) {
+        ChangeSetSummary changes = ChangeSetSummary.of(r);
+        if (changes.isEmpty()) {
             log.debug(key, "did not have entries in changeset");
             return null;
         }
-        Set<String> authors = new HashSet<>();
-        for (Entry entry : entries) {
-            authors.add(entry.getAuthor().getDisplayName());
-        }
-        MessageBuilder message = new MessageBuilder(notifier, r, log, tokenExpander);
+        log.debug(key, "has %d changeset entries", changes.getCommitCount());
+        MessageBuilder message = newMessageBuilder(r);
         message.append("Started by changes from ");
-        message.append(StringUtils.join(authors, ", "));
+        message.append(StringUtils.join(changes.getAuthors(), ", "));
         message.append(" (");
-        message.append(files.size());
+        message.append(changes.getFileCount());
         message.append(" file(s) changed)");
         message.appendOpenLink();
         if (includeCustomMessage) {
@@ -226,42 +234,35 @@ public class ActiveNotifier implements FineGrainedNotifier {
 
     String getCommitList(AbstractBuild r) {
         String buildKey = BuildKey.format(r);
-        ChangeLogSet changeSet = r.getChangeSet();
-        List<Entry> entries = new LinkedList<>();
-        for (Object o : changeSet.getItems()) {
-            Entry entry = (Entry) o;
-            log.debug(buildKey, "adding changeset entry: %s", o);
-            entries.add(entry);
-        }
-        if (entries.isEmpty()) {
+        AbstractBuild<?, ?> withChanges = UpstreamChanges.get().findBuildWithChanges(r);
+        if (withChanges == null) {
             log.debug(buildKey, "did not have entries in changeset");
-            Cause.UpstreamCause c = (Cause.UpstreamCause)r.getCause(Cause.UpstreamCause.class);
-            if (c == null) {
-                return "No Changes.";
-            }
-            String upProjectName = c.getUpstreamProject();
-            int buildNumber = c.getUpstreamBuild();
-            AbstractProject project = Jenkins.get().getItemByFullName(upProjectName, AbstractProject.class);
-            if (project != null) {
-                AbstractBuild upBuild = project.getBuildByNumber(buildNumber);
-                return getCommitList(upBuild);
-            }
+            return "No Changes.";
+        }
+        if (withChanges != r) {
+            log.debug(buildKey, "lists the changes of upstream build %s", BuildKey.format(withChanges));
         }
-        Set<String> commits = new HashSet<>();
-        for (Entry entry : entries) {
+        ChangeSetSummary changes = ChangeSetSummary.of(withChanges);
+        log.debug(buildKey, "has %d changeset entries", changes.getCommitCount());
+        Set<String> commits = new LinkedHashSet<>();
+        CommitInfoChoice commitInfoChoice = notifier.getCommitInfoChoice();
+        for (ChangeSetSummary.Commit entry : changes.getCommits()) {
             StringBuilder commit = new StringBuilder();
-            CommitInfoChoice commitInfoChoice = notifier.getCommitInfoChoice();
             if (commitInfoChoice.showTitle()) {
-                commit.append(entry.getMsg());
+                commit.append(entry.getTitle());
             }
             if (commitInfoChoice.showAuthor()) {
-                commit.append(" [").append(entry.getAuthor().getDisplayName()).append("]");
+                commit.append(" [").append(entry.getAuthor()).append("]");
             }
             commits.add(commit.toString());
         }
-        MessageBuilder message = new MessageBuilder(notifier, r, log, tokenExpander);
+        MessageBuilder message = newMessageBuilder(withChanges);
         message.append("Changes:\n- ");
         message.append(StringUtils.join(commits, "\n- "));
+        int notListed = changes.getCommitCount() - changes.getCommits().size();
+        if (notListed > 0) {
+            message.append("\n- \u2026and " + notListed + " more");
+        }
         return message.toString();
     }
 
@@ -277,7 +278,7 @@ public class ActiveNotifier implements FineGrainedNotifier {
     }
 
     String getBuildStatusMessage(AbstractBuild r, boolean includeTestSummary, boolean includeFailedTests, boolean includeCustomMessage) {
-        MessageBuilder message = new MessageBuilder(notifier, r, log, tokenExpander);
+        MessageBuilder message = newMessageBuilder(r);
         message.appendStatusMessage();
         message.appendDuration();
         message.appendOpenLink();
@@ -293,10 +294,12 @@ public class ActiveNotifier implements FineGrainedNotifier {
         return message.toString();
     }
 
+    MessageBuilder newMessageBuilder(AbstractBuild build) {
+        return new MessageBuilder(notifier, build, log, tokenExpander);
+    }
+
     public static class MessageBuilder {
 
-        private static final Pattern aTag = Pattern.compile("(?i)<a([^>]+)>(.+?)</a>|([{%])");
-        private static final Pattern href = Pattern.compile("\\s*(?i)href\\s*=\\s*(\"([^\"]*\")|'[^']*'|([^'\">\\s]+))");
         private static final String BACK_TO_NORMAL_STATUS_MESSAGE = "Back to normal",
                                     STILL_FAILING_STATUS_MESSAGE = "Still Failing",
                                     SUCCESS_STATUS_MESSAGE = "Success",
@@ -325,7 +328,7 @@ public class ActiveNotifier implements FineGrainedNotifier {
         }
 
         public MessageBuilder appendStatusMessage() {
-            message.append(this.escape(getStatusMessage(build)));
+            MessageEscaper.escape(getStatusMessage(build), message);
             return this;
         }
 
@@ -335,7 +338,6 @@ public class ActiveNotifier implements FineGrainedNotifier {
             if(null != result) {
                 AbstractBuild lastBuild = r.getProject().getLastBuild();
                 if (lastBuild != null) {
-                    Run previousBuild = lastBuild.getPreviousBuild();
                     Run previousSuccessfulBuild = r.getPreviousSuccessfulBuild();
                     boolean buildHasSucceededBefore = previousSuccessfulBuild != null;
 
@@ -345,19 +347,16 @@ public class ActiveNotifier implements FineGrainedNotifier {
                      * I.e. if build 1 was failure, build 2 was aborted and build 3 was a success the transition
                      * should be failure -> success (and therefore back to normal) not aborted -> success.
                      */
-                    Run lastNonAbortedBuild = previousBuild;
-                    while (lastNonAbortedBuild != null && lastNonAbortedBuild.getResult() == Result.ABORTED) {
-                        lastNonAbortedBuild = lastNonAbortedBuild.getPreviousBuild();
-                    }
+                    Result lastNonAbortedResult = PreviousBuildIndex.previousNonAbortedResult(r);
 
 
                     /* If all previous builds have been aborted, then use
                      * SUCCESS as a default status so an aborted message is sent
                      */
-                    if (lastNonAbortedBuild == null) {
+                    if (lastNonAbortedResult == null) {
                         previousResult = Result.SUCCESS;
                     } else {
-                        previousResult = lastNonAbortedBuild.getResult();
+                        previousResult = lastNonAbortedResult;
                     }
 
                     /* Back to normal should only be shown if the build has actually succeeded at some point.
@@ -387,7 +386,7 @@ public class ActiveNotifier implements FineGrainedNotifier {
                     if (result == Result.UNSTABLE) {
                         return UNSTABLE_STATUS_MESSAGE;
                     }
-                    if (lastNonAbortedBuild != null && previousResult != null && result.isWorseThan(previousResult)) {
+                    if (lastNonAbortedResult != null && result.isWorseThan(previousResult)) {
                         return REGRESSION_STATUS_MESSAGE;
                     }
                 }
@@ -396,19 +395,19 @@ public class ActiveNotifier implements FineGrainedNotifier {
         }
 
         public MessageBuilder append(String string) {
-            message.append(this.escape(string));
+            MessageEscaper.escape(string, message);
             return this;
         }
 
         public MessageBuilder append(Object string) {
-            message.append(this.escape(string.toString()));
+            MessageEscaper.escape(string.toString(), message);
             return this;
         }
 
         private MessageBuilder startMessage() {
-            message.append(this.escape(build.getProject().getFullDisplayName()));
+            MessageEscaper.escape(build.getProject().getFullDisplayName(), message);
             message.append(" - ");
-            message.append(this.escape(build.getDisplayName()));
+            MessageEscaper.escape(build.getDisplayName(), message);
             message.append(" ");
             return this;
         }
@@ -453,14 +452,8 @@ public class ActiveNotifier implements FineGrainedNotifier {
             AbstractTestResultAction<?> action = this.build
                     .getAction(AbstractTestResultAction.class);
             if (action != null) {
-                int failed = action.getFailCount();
-                if (failed > 0) {
-                    message.append("\n").append(failed).append(" Failed Tests:\n");
-                    for(TestResult result : action.getFailedTests()) {
-                        message.append("\t").append(getTestClassAndMethod(result)).append(" after ")
-                                .append(result.getDurationString()).append("\n");
-                    }
-                }
+                new FailedTestsRenderer(notifier.getFailedTestsMaxLines(), notifier.getFailedTestsMaxChars(),
+                        notifier.getGroupFailedTestsByClass()).render(action, message);
             }
             return this;
         }
@@ -489,20 +482,6 @@ public class ActiveNotifier implements FineGrainedNotifier {
             return this;
         }
 
-        private String getTestClassAndMethod(TestResult result) {
-            String fullDisplayName = result.getFullDisplayName();
-
-            if (StringUtils.countMatches(fullDisplayName, ".") > 1) {
-                int methodDotIndex = fullDisplayName.lastIndexOf('.');
-                int testClassDotIndex = fullDisplayName.substring(0, methodDotIndex).lastIndexOf('.');
-
-                return fullDisplayName.substring(testClassDotIndex + 1);
-
-            } else {
-                return fullDisplayName;
-            }
-        }
-
         private String createBackToNormalDurationString(){
             // This status code guarantees that the previous build fails and has been successful before
             // The back to normal time is the time since the build first broke
@@ -523,45 +502,8 @@ public class ActiveNotifier implements FineGrainedNotifier {
             return null;
         }
 
-        private String escapeCharacters(String string) {
-            string = string.replace("&", "&amp;");
-            string = string.replace("<", "&lt;");
-            string = string.replace(">", "&gt;");
-
-            return string;
-        }
-
-        private String[] extractReplaceLinks(Matcher aTag, StringBuffer sb) {
-            int size = 0;
-            List<String> links = new ArrayList<>();
-            while (aTag.find()) {
-                String firstGroup = aTag.group(1);
-                if (firstGroup != null) {
-                    Matcher url = href.matcher(firstGroup);
-                    if (url.find()) {
-                        String escapeThis = aTag.group(3);
-                        if (escapeThis != null) {
-                            aTag.appendReplacement(sb, String.format("{%s}", size++));
-                            links.add(escapeThis);
-                        } else {
-                            aTag.appendReplacement(sb, String.format("{%s}", size++));
-                            links.add(String.format("<%s|%s>", url.group(1).replaceAll("\"", ""), aTag.group(2)));
-                        }
-                    }
-                } else {
-                    String escapeThis = aTag.group(3);
-                    aTag.appendReplacement(sb, String.format("{%s}", size++));
-                    links.add(escapeThis);
-                }
-            }
-            aTag.appendTail(sb);
-            return links.toArray(new String[size]);
-        }
-
         public String escape(String string) {
-            StringBuffer pattern = new StringBuffer();
-            String[] links = extractReplaceLinks(aTag.matcher(string), pattern);
-            return MessageFormat.format(escapeCharacters(pattern.toString()), links);
+            return MessageEscaper.escape(string);
         }
 
         public String toString() {
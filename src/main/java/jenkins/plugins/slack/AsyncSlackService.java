@@ -0,0 +1,63 @@
+package jenkins.plugins.slack;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import jenkins.plugins.slack.http.AsyncHttpClientProvider;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+/**
+ * Posts with the shared non-blocking HTTP client, so that no thread waits for Slack while a post is in flight.
+ * A few I/O threads carry all concurrent posts, which matters when many builds finish at once.
+ *
+ * Rate limiting and retries work as for {@link StandardSlackService}.
+ */
+public class AsyncSlackService extends StandardSlackService {
+
+    /**
+     * @see StandardSlackService#StandardSlackService(String, String, boolean, String, boolean, String)
+     */
+    public AsyncSlackService(String baseUrl, String teamDomain, boolean botUser, String roomId, boolean replyBroadcast, String populatedToken) {
+        super(baseUrl, teamDomain, botUser, roomId, replyBroadcast, populatedToken);
+    }
+
+    @Override
+    CompletableFuture<PostResult> post(HttpPost post) {
+        CompletableFuture<PostResult> result = new CompletableFuture<>();
+        FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    result.complete(toPostResult(response));
+                } catch (IOException | RuntimeException e) {
+                    result.complete(failure(e));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.complete(failure(e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.complete(failure(new IOException("Post to Slack was cancelled")));
+            }
+        };
+        try {
+            getAsyncHttpClient().execute(post, callback);
+        } catch (RuntimeException e) {
+            result.complete(failure(e));
+        }
+        return result;
+    }
+
+    /**
+     * @return the shared client, which must not be closed by the caller
+     */
+    protected CloseableHttpAsyncClient getAsyncHttpClient() {
+        return AsyncHttpClientProvider.get();
+    }
+}
@@ -0,0 +1,115 @@
+package jenkins.plugins.slack;
+
+import hudson.model.AbstractBuild;
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.AffectedFile;
+import hudson.scm.ChangeLogSet.Entry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The authors, changed files and commits of a build's changeset, read in one pass over the changeset.
+ *
+ * Summaries are kept for as long as their build is in memory, so the start and the completion notification of a build
+ * summarize its changeset only once. Only the first {@link #MAX_COMMITS} commits are kept.
+ */
+final class ChangeSetSummary {
+
+    static final int MAX_COMMITS = 50;
+
+    private static final Map<AbstractBuild<?, ?>, ChangeSetSummary> summaries =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Set<String> authors;
+    private final int fileCount;
+    private final int commitCount;
+    private final List<Commit> commits;
+
+    private ChangeSetSummary(Set<String> authors, int fileCount, int commitCount, List<Commit> commits) {
+        this.authors = authors;
+        this.fileCount = fileCount;
+        this.commitCount = commitCount;
+        this.commits = commits;
+    }
+
+    static ChangeSetSummary of(AbstractBuild<?, ?> build) {
+        ChangeSetSummary summary = summaries.get(build);
+        if (summary == null) {
+            summary = summarize(build.getChangeSet());
+            summaries.put(build, summary);
+        }
+        return summary;
+    }
+
+    static ChangeSetSummary summarize(ChangeLogSet<? extends Entry> changeSet) {
+        Set<String> authors = new LinkedHashSet<>();
+        Set<String> files = new HashSet<>();
+        List<Commit> commits = new ArrayList<>();
+        int commitCount = 0;
+        for (Entry entry : changeSet) {
+            commitCount++;
+            User author = entry.getAuthor();
+            String authorName = author.getDisplayName();
+            authors.add(authorName);
+            Collection<? extends AffectedFile> affectedFiles = entry.getAffectedFiles();
+            if (affectedFiles != null) {
+                for (AffectedFile file : affectedFiles) {
+                    files.add(file.getPath());
+                }
+            }
+            if (commits.size() < MAX_COMMITS) {
+                commits.add(new Commit(entry.getMsg(), authorName));
+            }
+        }
+        return new ChangeSetSummary(authors, files.size(), commitCount, commits);
+    }
+
+    boolean isEmpty() {
+        return commitCount == 0;
+    }
+
+    Set<String> getAuthors() {
+        return authors;
+    }
+
+    int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return how many commits the changeset has, including the ones that were not kept
+     */
+    int getCommitCount() {
+        return commitCount;
+    }
+
+    List<Commit> getCommits() {
+        return commits;
+    }
+
+    static final class Commit {
+        private final String title;
+        private final String author;
+
+        Commit(String title, String author) {
+            this.title = title;
+            this.author = author;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        String getAuthor() {
+            return author;
+        }
+    }
+}
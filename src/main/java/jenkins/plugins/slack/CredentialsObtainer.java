@@ -3,26 +3,83 @@ package jenkins.plugins.slack;
 import com.cloudbees.plugins.credentials.CredentialsMatcher;
 import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.Extension;
+import hudson.XmlFile;
 import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
 import hudson.security.ACL;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 
 public class CredentialsObtainer {
 
+    static final long CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_INDEXED_CONTEXTS = 1000;
+
+    /**
+     * Credentials by id for every item they were looked up from, so that a notification does not scan all
+     * credentials visible to the item. An index is filled from a full scan the first time an id is missing from it.
+     * The index of a context is dropped when its credentials store is saved, indexes also expire to pick up changes
+     * made by other providers.
+     */
+    private static final ConcurrentMap<String, CredentialsIndex> indexes = new ConcurrentHashMap<>();
+
     public static StringCredentials lookupCredentials(String credentialId) {
-        List<StringCredentials> credentials = CredentialsProvider.lookupCredentials(StringCredentials.class, Jenkins.get(), ACL.SYSTEM, Collections.emptyList());
-        return getCredentialWithId(credentialId, credentials);
+        return lookup(credentialId, "", () -> CredentialsProvider.lookupCredentials(StringCredentials.class, Jenkins.get(), ACL.SYSTEM, Collections.emptyList()));
     }
 
     public static StringCredentials lookupCredentials(String credentialId, Item item) {
-        List<StringCredentials> credentials = CredentialsProvider.lookupCredentials(StringCredentials.class, item, ACL.SYSTEM, Collections.emptyList());
+        return lookup(credentialId, item != null ? item.getFullName() : "", () -> CredentialsProvider.lookupCredentials(StringCredentials.class, item, ACL.SYSTEM, Collections.emptyList()));
+    }
+
+    private static StringCredentials lookup(String credentialId, String context, Supplier<List<StringCredentials>> scan) {
+        long now = System.currentTimeMillis();
+        CredentialsIndex index = indexes.get(context);
+        if (index != null && index.expiresAt > now) {
+            StringCredentials found = index.byId.get(credentialId);
+            if (found != null) {
+                return found;
+            }
+        }
+        List<StringCredentials> credentials = scan.get();
+        if (indexes.size() >= MAX_INDEXED_CONTEXTS) {
+            indexes.values().removeIf(entry -> entry.expiresAt <= now);
+            if (indexes.size() >= MAX_INDEXED_CONTEXTS) {
+                indexes.clear();
+            }
+        }
+        indexes.put(context, new CredentialsIndex(credentials, now + CACHE_TTL_MILLIS));
         return getCredentialWithId(credentialId, credentials);
     }
 
+    /**
+     * Forgets every credential looked up so far.
+     */
+    public static void invalidateCache() {
+        indexes.clear();
+    }
+
+    /**
+     * Forgets the credentials looked up from the given context, the full name of an item or "" for Jenkins, and from
+     * the items inside it, as they see the credentials of the folders they are in.
+     */
+    static void invalidateCache(String context) {
+        String nested = context + "/";
+        indexes.keySet().removeIf(key -> key.equals(context) || key.startsWith(nested));
+    }
+
     /**
      * Attempts to obtain the credential with the providedId from the item's credential context, otherwise returns token
      * @param credentialId the id from the credential to be used
@@ -52,4 +109,35 @@ public class CredentialsObtainer {
         CredentialsMatcher matcher = CredentialsMatchers.withId(credentialId);
         return CredentialsMatchers.firstOrNull(credentials, matcher);
     }
+
+    private static final class CredentialsIndex {
+        private final Map<String, StringCredentials> byId;
+        private final long expiresAt;
+
+        CredentialsIndex(List<StringCredentials> credentials, long expiresAt) {
+            Map<String, StringCredentials> byId = new HashMap<>(credentials.size() * 2);
+            for (StringCredentials credential : credentials) {
+                // the first match wins, as with a scan of the list
+                byId.putIfAbsent(credential.getId(), credential);
+            }
+            this.byId = byId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Invalidates the cached credentials of the global credentials or of a folder, which can hold its own credentials,
+     * when they are saved.
+     */
+    @Extension
+    public static class CacheInvalidator extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                invalidateCache("");
+            } else if (o instanceof Item && o instanceof ItemGroup) {
+                invalidateCache(((Item) o).getFullName());
+            }
+        }
+    }
 }
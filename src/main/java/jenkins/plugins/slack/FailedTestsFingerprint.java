@@ -0,0 +1,89 @@
+package jenkins.plugins.slack;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The set of tests that failed in a build, kept as the sorted 64 bit hashes of the test ids encoded in a single base64
+ * string, so that the build.xml gets one element however many tests failed.
+ *
+ * It is recorded with the build when it completes, so comparing the failed tests of two builds does not need to load
+ * the test reports of the previous build from disk.
+ */
+public class FailedTestsFingerprint extends InvisibleAction {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String hashes;
+
+    FailedTestsFingerprint(long[] hashes) {
+        ByteBuffer bytes = ByteBuffer.allocate(hashes.length * Long.BYTES);
+        bytes.asLongBuffer().put(hashes);
+        this.hashes = Base64.getEncoder().encodeToString(bytes.array());
+    }
+
+    /**
+     * @return the fingerprint stored with the build, or else the fingerprint of the given test results, which is not
+     * added to the build
+     */
+    static FailedTestsFingerprint of(Run<?, ?> build, AbstractTestResultAction<?> tests) {
+        FailedTestsFingerprint fingerprint = build.getAction(FailedTestsFingerprint.class);
+        return fingerprint != null ? fingerprint : create(tests.getFailedTests());
+    }
+
+    /**
+     * Adds the fingerprint of the given test results to a build that is still running, which is saved with the
+     * build once it completes.
+     */
+    static void record(Run<?, ?> build, AbstractTestResultAction<?> tests) {
+        if (build.getAction(FailedTestsFingerprint.class) == null) {
+            build.addOrReplaceAction(create(tests.getFailedTests()));
+        }
+    }
+
+    static FailedTestsFingerprint create(List<? extends TestResult> failedTests) {
+        long[] hashes = new long[failedTests.size()];
+        int i = 0;
+        for (TestResult test : failedTests) {
+            hashes[i++] = hash(test.getId());
+        }
+        Arrays.sort(hashes);
+        return new FailedTestsFingerprint(dedupe(hashes));
+    }
+
+    /**
+     * @return whether the same tests failed in both builds
+     */
+    public boolean sameFailures(FailedTestsFingerprint other) {
+        return hashes.equals(other.hashes);
+    }
+
+    static long hash(String id) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long[] dedupe(long[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[length - 1]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length == sorted.length ? sorted : Arrays.copyOf(sorted, length);
+    }
+}
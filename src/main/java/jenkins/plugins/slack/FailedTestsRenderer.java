@@ -0,0 +1,115 @@
+package jenkins.plugins.slack;
+
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Renders the failed tests of a build within a budget of lines and characters.
+ *
+ * Slack does not accept messages longer than 40000 characters, so only as many failed tests as fit in the budget are
+ * read from the test results and the rest are counted in a final "...and N more" line.
+ */
+final class FailedTestsRenderer {
+
+    static final int DEFAULT_MAX_LINES = 100;
+    static final int DEFAULT_MAX_CHARS = 8000;
+
+    private final int maxLines;
+    private final int maxChars;
+    private final boolean groupByClass;
+
+    /**
+     * @param maxLines     how many lines of failed tests are rendered at most, defaults when not positive
+     * @param maxChars     how many characters of failed tests are rendered at most, defaults when not positive
+     * @param groupByClass whether to list the failed tests under their test class
+     */
+    FailedTestsRenderer(int maxLines, int maxChars, boolean groupByClass) {
+        this.maxLines = maxLines > 0 ? maxLines : DEFAULT_MAX_LINES;
+        this.maxChars = maxChars > 0 ? maxChars : DEFAULT_MAX_CHARS;
+        this.groupByClass = groupByClass;
+    }
+
+    void render(AbstractTestResultAction<?> action, StringBuilder out) {
+        int failed = action.getFailCount();
+        if (failed <= 0) {
+            return;
+        }
+        out.append("\n").append(failed).append(" Failed Tests:\n");
+        int rendered = groupByClass ? renderByClass(action, out) : renderFlat(action, out);
+        if (failed > rendered) {
+            out.append("\t\u2026and ").append(failed - rendered).append(" more\n");
+        }
+    }
+
+    private int renderFlat(AbstractTestResultAction<?> action, StringBuilder out) {
+        int chars = 0;
+        int rendered = 0;
+        Iterator<? extends TestResult> tests = action.getFailedTests().iterator();
+        while (rendered < maxLines && tests.hasNext()) {
+            TestResult test = tests.next();
+            String line = "\t" + getTestClassAndMethod(test.getFullDisplayName()) + " after "
+                    + test.getDurationString() + "\n";
+            if (chars + line.length() > maxChars) {
+                break;
+            }
+            out.append(line);
+            chars += line.length();
+            rendered++;
+        }
+        return rendered;
+    }
+
+    private int renderByClass(AbstractTestResultAction<?> action, StringBuilder out) {
+        Map<String, List<String>> byClass = new LinkedHashMap<>();
+        int lines = 0;
+        int chars = 0;
+        int rendered = 0;
+        Iterator<? extends TestResult> tests = action.getFailedTests().iterator();
+        while (tests.hasNext()) {
+            TestResult test = tests.next();
+            String classAndMethod = getTestClassAndMethod(test.getFullDisplayName());
+            int methodDot = classAndMethod.lastIndexOf('.');
+            String testClass = methodDot > 0 ? classAndMethod.substring(0, methodDot) : "";
+            String line = "\t\t" + classAndMethod.substring(methodDot + 1) + " after " + test.getDurationString() + "\n";
+            List<String> methods = byClass.get(testClass);
+            int neededLines = methods == null ? 2 : 1;
+            int neededChars = line.length() + (methods == null ? testClass.length() + 3 : 0);
+            if (lines + neededLines > maxLines || chars + neededChars > maxChars) {
+                break;
+            }
+            if (methods == null) {
+                methods = new ArrayList<>();
+                byClass.put(testClass, methods);
+            }
+            methods.add(line);
+            lines += neededLines;
+            chars += neededChars;
+            rendered++;
+        }
+        for (Map.Entry<String, List<String>> testClass : byClass.entrySet()) {
+            out.append("\t").append(testClass.getKey()).append(":\n");
+            for (String line : testClass.getValue()) {
+                out.append(line);
+            }
+        }
+        return rendered;
+    }
+
+    static String getTestClassAndMethod(String fullDisplayName) {
+        if (StringUtils.countMatches(fullDisplayName, ".") > 1) {
+            int methodDotIndex = fullDisplayName.lastIndexOf('.');
+            int testClassDotIndex = fullDisplayName.substring(0, methodDotIndex).lastIndexOf('.');
+
+            return fullDisplayName.substring(testClassDotIndex + 1);
+
+        } else {
+            return fullDisplayName;
+        }
+    }
+}
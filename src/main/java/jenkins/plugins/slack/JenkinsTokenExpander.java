@@ -1,28 +1,82 @@
 package jenkins.plugins.slack;
 
+import com.google.common.collect.ListMultimap;
+import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.TaskListener;
 import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 
 public class JenkinsTokenExpander implements TokenExpander {
-    private static final Logger logger = Logger.getLogger(JenkinsTokenExpander.class.getName());
     private final TaskListener listener;
+    private final List<TokenMacro> privateTokens;
 
     public JenkinsTokenExpander(TaskListener listener) {
+        this(listener, Collections.emptyList());
+    }
+
+    /**
+     * @param privateTokens macros tried before the ones of the installed plugins, as with
+     *                      {@link TokenMacro#expandAll(AbstractBuild, TaskListener, String, boolean, List)}
+     */
+    JenkinsTokenExpander(TaskListener listener, List<TokenMacro> privateTokens) {
         this.listener = listener;
+        this.privateTokens = privateTokens;
     }
 
     @Override
     public String expand(String template, AbstractBuild<?, ?> build) {
-        try {
-            return TokenMacro.expandAll(build, listener, template, false, null);
-        } catch (MacroEvaluationException | IOException | InterruptedException e) {
-            logger.log(Level.SEVERE, "Failed to process custom message", e);
-            return "[UNPROCESSABLE] " + template;
+        if (template == null) {
+            return null;
+        }
+        return MessageTemplate.compile(template).evaluate(new BuildTokens(build));
+    }
+
+    /**
+     * Evaluates tokens in the order of {@link TokenMacro#expandAll(AbstractBuild, TaskListener, String, boolean, List)}:
+     * a token without arguments is an environment variable of the build when there is one, build variables taking
+     * precedence, and else it is evaluated with the macro accepting its name.
+     */
+    private final class BuildTokens implements MessageTemplate.Resolver {
+        private final AbstractBuild<?, ?> build;
+        private EnvVars variables;
+
+        BuildTokens(AbstractBuild<?, ?> build) {
+            this.build = build;
+        }
+
+        @Override
+        public String resolve(String name, Map<String, String> arguments, ListMultimap<String, String> argumentMultimap)
+                throws MacroEvaluationException, IOException, InterruptedException {
+            if (arguments.isEmpty()) {
+                String value = variables().get(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            for (TokenMacro macro : privateTokens) {
+                if (macro.acceptsMacroName(name)) {
+                    return macro.evaluate(build, listener, name, arguments, argumentMultimap);
+                }
+            }
+            for (TokenMacro macro : TokenMacro.all()) {
+                if (macro.acceptsMacroName(name)) {
+                    return macro.evaluate(build, listener, name, arguments, argumentMultimap);
+                }
+            }
+            return null;
+        }
+
+        private EnvVars variables() throws IOException, InterruptedException {
+            if (variables == null) {
+                variables = new EnvVars(build.getEnvironment(listener));
+                variables.putAll(build.getBuildVariables());
+            }
+            return variables;
         }
     }
 }
@@ -0,0 +1,194 @@
+package jenkins.plugins.slack;
+
+/**
+ * Escapes text for Slack's message formatting in a single pass.
+ *
+ * {@code &}, {@code <} and {@code >} are escaped, and HTML links such as {@code <a href="url">text</a>} are turned
+ * into Slack links {@code <url|text>}. A link is only recognised when its text is on one line, and when it has no
+ * {@code href} it is escaped like any other text.
+ */
+final class MessageEscaper {
+
+    private static final String CLOSING_TAG = "</a>";
+
+    private MessageEscaper() {
+    }
+
+    static String escape(String string) {
+        StringBuilder escaped = new StringBuilder(string.length() + 16);
+        escape(string, escaped);
+        return escaped.toString();
+    }
+
+    /**
+     * Appends the escaped string to {@code out}.
+     */
+    static void escape(String string, StringBuilder out) {
+        int length = string.length();
+        int i = 0;
+        while (i < length) {
+            char c = string.charAt(i);
+            if (c == '<') {
+                int end = appendLink(string, i, out);
+                if (end > i) {
+                    i = end;
+                    continue;
+                }
+                out.append("&lt;");
+            } else if (c == '>') {
+                out.append("&gt;");
+            } else if (c == '&') {
+                out.append("&amp;");
+            } else {
+                out.append(c);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Appends the Slack link for the {@code <a>} element starting at {@code start}.
+     *
+     * @return the index just after the element, or {@code start} if there is no link there
+     */
+    private static int appendLink(String string, int start, StringBuilder out) {
+        int length = string.length();
+        if (start + 2 >= length || !isA(string.charAt(start + 1)) || string.charAt(start + 2) == '>') {
+            return start;
+        }
+        int attributesEnd = string.indexOf('>', start + 2);
+        if (attributesEnd < 0) {
+            return start;
+        }
+        int textStart = attributesEnd + 1;
+        int textEnd = -1;
+        for (int k = textStart; k < length; k++) {
+            if (k > textStart && isClosingTag(string, k)) {
+                textEnd = k;
+                break;
+            }
+            if (isLineTerminator(string.charAt(k))) {
+                break;
+            }
+        }
+        if (textEnd < 0) {
+            return start;
+        }
+        int elementEnd = textEnd + CLOSING_TAG.length();
+        int hrefStart = start + 2;
+        while (true) {
+            hrefStart = indexOfHref(string, hrefStart, attributesEnd);
+            if (hrefStart < 0) {
+                // not a link, escape the whole element as text
+                escapeText(string, start, elementEnd, out);
+                return elementEnd;
+            }
+            int valueEnd = appendHrefValue(string, hrefStart + 4, attributesEnd, out);
+            if (valueEnd >= 0) {
+                out.append('|').append(string, textStart, textEnd).append('>');
+                return elementEnd;
+            }
+            hrefStart++;
+        }
+    }
+
+    /**
+     * Parses {@code \s*=\s*value} after an {@code href} and if it is valid appends {@code <value}, double quotes
+     * removed.
+     *
+     * @return the end of the value, or -1 if it is not valid
+     */
+    private static int appendHrefValue(String string, int i, int end, StringBuilder out) {
+        i = skipWhitespace(string, i, end);
+        if (i >= end || string.charAt(i) != '=') {
+            return -1;
+        }
+        i = skipWhitespace(string, i + 1, end);
+        if (i >= end) {
+            return -1;
+        }
+        char first = string.charAt(i);
+        int valueEnd;
+        if (first == '"' || first == '\'') {
+            int closing = string.indexOf(first, i + 1);
+            if (closing < 0 || closing >= end) {
+                return -1;
+            }
+            valueEnd = closing + 1;
+        } else {
+            valueEnd = i;
+            while (valueEnd < end && !isUnquotedValueEnd(string.charAt(valueEnd))) {
+                valueEnd++;
+            }
+            if (valueEnd == i) {
+                return -1;
+            }
+        }
+        out.append('<');
+        for (int k = i; k < valueEnd; k++) {
+            char c = string.charAt(k);
+            if (c != '"') {
+                out.append(c);
+            }
+        }
+        return valueEnd;
+    }
+
+    private static void escapeText(String string, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = string.charAt(i);
+            if (c == '<') {
+                out.append("&lt;");
+            } else if (c == '>') {
+                out.append("&gt;");
+            } else if (c == '&') {
+                out.append("&amp;");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static int indexOfHref(String string, int from, int end) {
+        for (int i = from; i + 4 <= end; i++) {
+            if (lower(string.charAt(i)) == 'h' && lower(string.charAt(i + 1)) == 'r'
+                    && lower(string.charAt(i + 2)) == 'e' && lower(string.charAt(i + 3)) == 'f') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClosingTag(String string, int i) {
+        return i + CLOSING_TAG.length() <= string.length()
+                && string.charAt(i) == '<' && string.charAt(i + 1) == '/'
+                && isA(string.charAt(i + 2)) && string.charAt(i + 3) == '>';
+    }
+
+    private static int skipWhitespace(String string, int i, int end) {
+        while (i < end && isWhitespace(string.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isA(char c) {
+        return c == 'a' || c == 'A';
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isUnquotedValueEnd(char c) {
+        return c == '\'' || c == '"' || c == '>' || isWhitespace(c);
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
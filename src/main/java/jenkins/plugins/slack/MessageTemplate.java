@@ -0,0 +1,310 @@
+package jenkins.plugins.slack;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
+
+/**
+ * A custom message parsed once into text and the tokens it references, {@code $NAME}, {@code ${NAME}} and
+ * {@code ${NAME, arg=value, ...}} as understood by the Token Macro plugin, {@code $$} standing for a {@code $}.
+ *
+ * Templates are cached by their text, so each custom message is parsed once for as long as the configuration does
+ * not change. Anything that is not a well-formed token is kept as text, and a token that cannot be evaluated is kept
+ * as written instead of spoiling the whole message.
+ */
+final class MessageTemplate {
+
+    private static final Logger logger = Logger.getLogger(MessageTemplate.class.getName());
+
+    private static final int MAX_CACHED_TEMPLATES = 500;
+
+    private static final ConcurrentMap<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final List<Part> parts;
+    private final boolean hasTokens;
+
+    private MessageTemplate(String source, List<Part> parts) {
+        this.source = source;
+        this.parts = parts;
+        boolean tokens = false;
+        for (Part part : parts) {
+            tokens |= part instanceof Token;
+        }
+        this.hasTokens = tokens;
+    }
+
+    /**
+     * @return the parsed template, from the cache when the same text was parsed before
+     */
+    static MessageTemplate compile(String source) {
+        MessageTemplate template = templates.get(source);
+        if (template == null) {
+            template = parse(source);
+            if (templates.size() >= MAX_CACHED_TEMPLATES) {
+                templates.clear();
+            }
+            templates.put(source, template);
+        }
+        return template;
+    }
+
+    static MessageTemplate parse(String source) {
+        return new Parser(source).parse();
+    }
+
+    /**
+     * Replaces the tokens with their values, each token being evaluated once per occurrence.
+     */
+    String evaluate(Resolver resolver) {
+        if (!hasTokens) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length() + 64);
+        for (Part part : parts) {
+            part.appendTo(out, resolver);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Looks up the value of a token.
+     */
+    interface Resolver {
+        /**
+         * @return the value, or {@code null} when no macro or variable has this name
+         */
+        String resolve(String name, Map<String, String> arguments, ListMultimap<String, String> argumentMultimap)
+                throws MacroEvaluationException, IOException, InterruptedException;
+    }
+
+    private interface Part {
+        void appendTo(StringBuilder out, Resolver resolver);
+    }
+
+    private static final class Text implements Part {
+        private final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out, Resolver resolver) {
+            out.append(text);
+        }
+    }
+
+    private static final class Token implements Part {
+        private final String name;
+        private final Map<String, String> arguments;
+        private final ListMultimap<String, String> argumentMultimap;
+        private final String source;
+
+        Token(String name, ListMultimap<String, String> argumentMultimap, String source) {
+            this.name = name;
+            Map<String, String> arguments = new HashMap<>();
+            for (Map.Entry<String, String> argument : argumentMultimap.entries()) {
+                // the last value wins, as with the Token Macro plugin
+                arguments.put(argument.getKey(), argument.getValue());
+            }
+            this.arguments = Collections.unmodifiableMap(arguments);
+            this.argumentMultimap = argumentMultimap;
+            this.source = source;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out, Resolver resolver) {
+            String value = null;
+            try {
+                value = resolver.resolve(name, arguments, argumentMultimap);
+            } catch (MacroEvaluationException | IOException e) {
+                logger.log(Level.WARNING, "Failed to evaluate " + source + " in custom message", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.append(value != null ? value : source);
+        }
+    }
+
+    private static final class Parser {
+        private final String source;
+        private final List<Part> parts = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private int i;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        MessageTemplate parse() {
+            int length = source.length();
+            while (i < length) {
+                char c = source.charAt(i);
+                if (c == '$' && i + 1 < length) {
+                    char next = source.charAt(i + 1);
+                    if (next == '$') {
+                        text.append('$');
+                        i += 2;
+                        continue;
+                    }
+                    int start = i;
+                    Token token = next == '{' ? bracedToken() : simpleToken();
+                    if (token != null) {
+                        flushText();
+                        parts.add(token);
+                        continue;
+                    }
+                    i = start;
+                }
+                text.append(c);
+                i++;
+            }
+            flushText();
+            return new MessageTemplate(source, parts);
+        }
+
+        private void flushText() {
+            if (text.length() > 0) {
+                parts.add(new Text(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        /**
+         * {@code $NAME}
+         */
+        private Token simpleToken() {
+            int start = i;
+            i++;
+            String name = name();
+            if (name == null) {
+                return null;
+            }
+            return new Token(name, ArrayListMultimap.create(), source.substring(start, i));
+        }
+
+        /**
+         * {@code ${NAME}} or {@code ${NAME, arg=value, ...}}
+         */
+        private Token bracedToken() {
+            int start = i;
+            i += 2;
+            skipWhitespace();
+            String name = name();
+            if (name == null) {
+                return null;
+            }
+            ListMultimap<String, String> arguments = ArrayListMultimap.create();
+            skipWhitespace();
+            while (i < source.length() && source.charAt(i) == ',') {
+                i++;
+                skipWhitespace();
+                String key = name();
+                if (key == null) {
+                    return null;
+                }
+                skipWhitespace();
+                if (i >= source.length() || source.charAt(i) != '=') {
+                    return null;
+                }
+                i++;
+                skipWhitespace();
+                String value = value();
+                if (value == null) {
+                    return null;
+                }
+                arguments.put(key, value);
+                skipWhitespace();
+            }
+            if (i >= source.length() || source.charAt(i) != '}') {
+                return null;
+            }
+            i++;
+            return new Token(name, arguments, source.substring(start, i));
+        }
+
+        private String name() {
+            int start = i;
+            if (i < source.length() && isNameStart(source.charAt(i))) {
+                i++;
+                while (i < source.length() && isNamePart(source.charAt(i))) {
+                    i++;
+                }
+            }
+            return i > start ? source.substring(start, i) : null;
+        }
+
+        /**
+         * A quoted string with backslash escapes, or a bare word such as a number or a boolean.
+         */
+        private String value() {
+            if (i >= source.length()) {
+                return null;
+            }
+            if (source.charAt(i) != '"') {
+                int start = i;
+                while (i < source.length() && isValuePart(source.charAt(i))) {
+                    i++;
+                }
+                return i > start ? source.substring(start, i) : null;
+            }
+            StringBuilder value = new StringBuilder();
+            i++;
+            while (i < source.length()) {
+                char c = source.charAt(i++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\' && i < source.length()) {
+                    char escaped = source.charAt(i++);
+                    switch (escaped) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        default:
+                            value.append(escaped);
+                            break;
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            return null;
+        }
+
+        private void skipWhitespace() {
+            while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+                i++;
+            }
+        }
+
+        private static boolean isNameStart(char c) {
+            return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+        }
+
+        private static boolean isNamePart(char c) {
+            return isNameStart(c) || (c >= '0' && c <= '9');
+        }
+
+        private static boolean isValuePart(char c) {
+            return isNamePart(c) || c == '.' || c == '-';
+        }
+    }
+}
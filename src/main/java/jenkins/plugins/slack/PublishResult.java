@@ -0,0 +1,29 @@
+package jenkins.plugins.slack;
+
+/**
+ * The outcome of publishing one message of a batch.
+ */
+public final class PublishResult {
+
+    private final boolean success;
+    private final String responseString;
+
+    public PublishResult(boolean success, String responseString) {
+        this.success = success;
+        this.responseString = responseString;
+    }
+
+    /**
+     * @return whether the message was posted to every room
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return the last response Slack gave for the message, {@code null} if there was none
+     */
+    public String getResponseString() {
+        return responseString;
+    }
+}
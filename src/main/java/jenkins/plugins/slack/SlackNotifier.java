@@ -19,7 +19,9 @@ import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,6 +29,12 @@ import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import jenkins.model.Jenkins;
 import jenkins.plugins.slack.config.GlobalCredentialMigrator;
+import jenkins.plugins.slack.dispatch.NotificationCoalescer;
+import jenkins.plugins.slack.dispatch.NotificationDispatcher;
+import jenkins.plugins.slack.dispatch.OverflowPolicy;
+import jenkins.plugins.slack.dispatch.QueuedSlackService;
+import jenkins.plugins.slack.dispatch.RenderExecutor;
+import jenkins.plugins.slack.http.RetryPolicy;
 import jenkins.plugins.slack.logging.BuildAwareLogger;
 import jenkins.plugins.slack.logging.BuildKey;
 import jenkins.plugins.slack.logging.SlackNotificationsLogger;
@@ -70,6 +78,9 @@ public class SlackNotifier extends Notifier {
     private boolean notifyRepeatedFailure;
     private boolean includeTestSummary;
     private boolean includeFailedTests;
+    private int failedTestsMaxLines;
+    private int failedTestsMaxChars;
+    private boolean groupFailedTestsByClass;
     private MatrixTriggerMode matrixTriggerMode;
     private CommitInfoChoice commitInfoChoice;
     private boolean includeCustomMessage;
@@ -79,6 +90,8 @@ public class SlackNotifier extends Notifier {
     private String customMessageNotBuilt;
     private String customMessageUnstable;
     private String customMessageFailure;
+    private int coalesceWindowSeconds;
+    private int coalesceMaxBatch;
 
     /** @deprecated use {@link #tokenCredentialId} */
     @SuppressWarnings("DeprecatedIsStillUsed")
@@ -212,6 +225,18 @@ public class SlackNotifier extends Notifier {
         return includeFailedTests;
     }
 
+    public int getFailedTestsMaxLines() {
+        return failedTestsMaxLines > 0 ? failedTestsMaxLines : FailedTestsRenderer.DEFAULT_MAX_LINES;
+    }
+
+    public int getFailedTestsMaxChars() {
+        return failedTestsMaxChars > 0 ? failedTestsMaxChars : FailedTestsRenderer.DEFAULT_MAX_CHARS;
+    }
+
+    public boolean getGroupFailedTestsByClass() {
+        return groupFailedTestsByClass;
+    }
+
     public boolean getNotifyRepeatedFailure() {
         return notifyRepeatedFailure;
     }
@@ -244,6 +269,17 @@ public class SlackNotifier extends Notifier {
         return customMessageFailure;
     }
 
+    /**
+     * @return how long completion notifications are held back after one was posted, 0 to never hold them back
+     */
+    public int getCoalesceWindowSeconds() {
+        return coalesceWindowSeconds;
+    }
+
+    public int getCoalesceMaxBatch() {
+        return coalesceMaxBatch > 0 ? coalesceMaxBatch : NotificationCoalescer.DEFAULT_MAX_BATCH;
+    }
+
     @DataBoundSetter
     public void setBaseUrl(String baseUrl) {
         this.baseUrl = baseUrl;
@@ -314,6 +350,21 @@ public class SlackNotifier extends Notifier {
         this.includeFailedTests = includeFailedTests;
     }
 
+    @DataBoundSetter
+    public void setFailedTestsMaxLines(int failedTestsMaxLines) {
+        this.failedTestsMaxLines = failedTestsMaxLines;
+    }
+
+    @DataBoundSetter
+    public void setFailedTestsMaxChars(int failedTestsMaxChars) {
+        this.failedTestsMaxChars = failedTestsMaxChars;
+    }
+
+    @DataBoundSetter
+    public void setGroupFailedTestsByClass(boolean groupFailedTestsByClass) {
+        this.groupFailedTestsByClass = groupFailedTestsByClass;
+    }
+
     @DataBoundSetter
     public void setNotifyRepeatedFailure(boolean notifyRepeatedFailure) {
         this.notifyRepeatedFailure = notifyRepeatedFailure;
@@ -354,6 +405,16 @@ public class SlackNotifier extends Notifier {
         this.customMessageFailure = customMessageFailure;
     }
 
+    @DataBoundSetter
+    public void setCoalesceWindowSeconds(int coalesceWindowSeconds) {
+        this.coalesceWindowSeconds = Math.max(0, coalesceWindowSeconds);
+    }
+
+    @DataBoundSetter
+    public void setCoalesceMaxBatch(int coalesceMaxBatch) {
+        this.coalesceMaxBatch = coalesceMaxBatch;
+    }
+
     @DataBoundConstructor
     public SlackNotifier(CommitInfoChoice commitInfoChoice) {
         this.commitInfoChoice = commitInfoChoice;
@@ -471,7 +532,7 @@ public class SlackNotifier extends Notifier {
         authTokenCredentialId = env.expand(authTokenCredentialId);
         room = env.expand(room);
         final String populatedToken = CredentialsObtainer.getTokenToUse(authTokenCredentialId, abstractBuild.getParent(), authToken);
-        return new StandardSlackService(baseUrl, teamDomain, botUser, room, false, populatedToken);
+        return descriptor.createSlackService(baseUrl, teamDomain, botUser, room, false, populatedToken);
     }
 
     @Override
@@ -485,11 +546,13 @@ public class SlackNotifier extends Notifier {
         BuildAwareLogger log = createLogger(listener);
         log.debug(buildKey, "Performing complete notifications");
         JenkinsTokenExpander tokenExpander = new JenkinsTokenExpander(listener);
+        // both notifications are for the same build, resolve where to post them only once
+        Function<AbstractBuild<?, ?>, SlackService> slackFactory = slackFactory(listener);
         try {
-            new ActiveNotifier(this, slackFactory(listener), log, tokenExpander).completed(build);
+            new ActiveNotifier(this, slackFactory, log, tokenExpander).completed(build);
             if (notifyRegression) {
                 log.debug(buildKey, "Performing finalize notifications");
-                new ActiveNotifier(this, slackFactory(listener), log, tokenExpander).finalized(build);
+                new ActiveNotifier(this, slackFactory, log, tokenExpander).finalized(build);
             }
         } catch (Exception e) {
             log.info(buildKey,"Exception attempting Slack notification: " + e.getMessage());
@@ -512,8 +575,13 @@ public class SlackNotifier extends Notifier {
         return super.prebuild(build, listener);
     }
 
+    /**
+     * @return a factory that resolves the service for a build once, and returns the same service afterwards
+     */
     private Function<AbstractBuild<?, ?>, SlackService> slackFactory(BuildListener listener) {
-        return b -> newSlackService(b, listener);
+        Map<AbstractBuild<?, ?>, SlackService> slackServices = new ConcurrentHashMap<>();
+        return b -> slackServices.computeIfAbsent(b,
+                build -> new QueuedSlackService(newSlackService(build, listener), BuildKey.format(build)));
     }
 
     private static BuildAwareLogger createLogger(BuildListener listener) {
@@ -535,6 +603,15 @@ public class SlackNotifier extends Notifier {
         private boolean botUser;
         private String room;
         private String sendAs;
+        private int dispatchQueueCapacity;
+        private OverflowPolicy dispatchOverflowPolicy;
+        private int retryMaxAttempts;
+        private long retryBaseDelayMillis;
+        private long retryMaxDelayMillis;
+        private long retryDeadlineMillis;
+        private boolean durableOutbox;
+        private boolean asyncHttp;
+        private int renderBudgetSeconds;
 
         public DescriptorImpl() {
             load();
@@ -620,6 +697,106 @@ public class SlackNotifier extends Notifier {
             this.sendAs = sendAs;
         }
 
+        public int getDispatchQueueCapacity() {
+            return dispatchQueueCapacity > 0 ? dispatchQueueCapacity : NotificationDispatcher.DEFAULT_CAPACITY;
+        }
+
+        @DataBoundSetter
+        public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+            this.dispatchQueueCapacity = dispatchQueueCapacity;
+        }
+
+        public OverflowPolicy getDispatchOverflowPolicy() {
+            return dispatchOverflowPolicy != null ? dispatchOverflowPolicy : NotificationDispatcher.DEFAULT_OVERFLOW_POLICY;
+        }
+
+        @DataBoundSetter
+        public void setDispatchOverflowPolicy(OverflowPolicy dispatchOverflowPolicy) {
+            this.dispatchOverflowPolicy = dispatchOverflowPolicy;
+        }
+
+        public int getRetryMaxAttempts() {
+            return retryMaxAttempts > 0 ? retryMaxAttempts : RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+        }
+
+        @DataBoundSetter
+        public void setRetryMaxAttempts(int retryMaxAttempts) {
+            this.retryMaxAttempts = retryMaxAttempts;
+        }
+
+        public long getRetryBaseDelayMillis() {
+            return retryBaseDelayMillis > 0 ? retryBaseDelayMillis : RetryPolicy.DEFAULT_BASE_DELAY_MILLIS;
+        }
+
+        @DataBoundSetter
+        public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+            this.retryBaseDelayMillis = retryBaseDelayMillis;
+        }
+
+        public long getRetryMaxDelayMillis() {
+            return retryMaxDelayMillis > 0 ? retryMaxDelayMillis : RetryPolicy.DEFAULT_MAX_DELAY_MILLIS;
+        }
+
+        @DataBoundSetter
+        public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+            this.retryMaxDelayMillis = retryMaxDelayMillis;
+        }
+
+        public long getRetryDeadlineMillis() {
+            return retryDeadlineMillis > 0 ? retryDeadlineMillis : RetryPolicy.DEFAULT_DEADLINE_MILLIS;
+        }
+
+        @DataBoundSetter
+        public void setRetryDeadlineMillis(long retryDeadlineMillis) {
+            this.retryDeadlineMillis = retryDeadlineMillis;
+        }
+
+        public boolean isDurableOutbox() {
+            return durableOutbox;
+        }
+
+        @DataBoundSetter
+        public void setDurableOutbox(boolean durableOutbox) {
+            this.durableOutbox = durableOutbox;
+        }
+
+        public boolean isAsyncHttp() {
+            return asyncHttp;
+        }
+
+        @DataBoundSetter
+        public void setAsyncHttp(boolean asyncHttp) {
+            this.asyncHttp = asyncHttp;
+        }
+
+        public int getRenderBudgetSeconds() {
+            return renderBudgetSeconds > 0 ? renderBudgetSeconds : RenderExecutor.DEFAULT_BUDGET_SECONDS;
+        }
+
+        @DataBoundSetter
+        public void setRenderBudgetSeconds(int renderBudgetSeconds) {
+            this.renderBudgetSeconds = renderBudgetSeconds;
+        }
+
+        /**
+         * @return a service posting with the HTTP client selected globally, retrying as configured globally
+         */
+        public StandardSlackService createSlackService(String baseUrl, String teamDomain, boolean botUser, String roomId, boolean replyBroadcast, String populatedToken) {
+            StandardSlackService slackService = asyncHttp
+                    ? new AsyncSlackService(baseUrl, teamDomain, botUser, roomId, replyBroadcast, populatedToken)
+                    : new StandardSlackService(baseUrl, teamDomain, botUser, roomId, replyBroadcast, populatedToken);
+            slackService.setRetryPolicy(getRetryPolicy());
+            return slackService;
+        }
+
+        /**
+         * @return how transient failures to post to Slack are retried, as configured globally
+         */
+        public RetryPolicy getRetryPolicy() {
+            return new RetryPolicy(getRetryMaxAttempts(), getRetryBaseDelayMillis(), getRetryMaxDelayMillis(),
+                    getRetryDeadlineMillis());
+        }
+
         public ListBoxModel doFillCommitInfoChoiceItems() {
             ListBoxModel model = new ListBoxModel();
 
@@ -671,7 +848,7 @@ public class SlackNotifier extends Notifier {
         SlackService getSlackService(final String baseUrl, final String teamDomain, final String authTokenCredentialId, final boolean botUser, final String roomId, final Item item) {
             final String populatedToken = CredentialsObtainer.getTokenToUse(authTokenCredentialId, item,null );
             if (populatedToken != null) {
-                return new StandardSlackService(baseUrl, teamDomain, botUser, roomId, false, populatedToken);
+                return createSlackService(baseUrl, teamDomain, botUser, roomId, false, populatedToken);
             } else {
                 throw new NoSuchElementException("Could not obtain credentials with credential id: " + authTokenCredentialId);
             }
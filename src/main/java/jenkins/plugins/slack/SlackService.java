@@ -1,5 +1,10 @@
 package jenkins.plugins.slack;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import jenkins.plugins.slack.payload.Payloads;
+import jenkins.plugins.slack.payload.SlackMessage;
 import net.sf.json.JSONArray;
 
 public interface SlackService {
@@ -7,7 +12,64 @@ public interface SlackService {
 
     boolean publish(String message, String color);
 
+    /**
+     * Kept for existing callers and implementations, {@link #publish(SlackMessage)} avoids building the attachments
+     * with json-lib.
+     */
     boolean publish(String message, JSONArray attachments, String color);
 
+    /**
+     * Publishes a message with typed attachments. Implementations which do not override it go through
+     * {@link #publish(String, JSONArray, String)}.
+     */
+    default boolean publish(SlackMessage message) {
+        return publish(message.getText(), JSONArray.fromObject(Payloads.toJson(message.getAttachments())), message.getColor());
+    }
+
+    /**
+     * Publishes a message without waiting for it to be posted, where the implementation supports it. The default
+     * publishes on the calling thread.
+     *
+     * @return a future completed with whether the message was posted
+     */
+    default CompletableFuture<Boolean> publishAsync(SlackMessage message) {
+        return CompletableFuture.completedFuture(publish(message));
+    }
+
+    /**
+     * Publishes several messages in one call. Messages to the same room are posted in the order given. The default
+     * publishes them one after the other on the calling thread.
+     *
+     * @return a future completed with the outcome of each message, in the order given
+     */
+    default CompletableFuture<List<PublishResult>> publishAll(List<SlackMessage> messages) {
+        List<PublishResult> results = new ArrayList<>(messages.size());
+        for (SlackMessage message : messages) {
+            boolean success = publish(message);
+            results.add(new PublishResult(success, getResponseString()));
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+    /**
+     * Replaces the text and attachments of a message posted earlier.
+     *
+     * @param channel the id of the channel of the message, as given in the response to the post
+     * @param ts the timestamp identifying the message
+     * @return whether the message was updated, the default does not support updates and returns {@code false}
+     */
+    default boolean update(String channel, String ts, SlackMessage message) {
+        return false;
+    }
+
+    /**
+     * Updates a message without waiting for it to be updated, where the implementation supports it.
+     *
+     * @see #update(String, String, SlackMessage)
+     */
+    default CompletableFuture<Boolean> updateAsync(String channel, String ts, SlackMessage message) {
+        return CompletableFuture.completedFuture(update(channel, ts, message));
+    }
+
     String getResponseString();
 }
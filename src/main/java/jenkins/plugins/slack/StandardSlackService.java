@@ -1,34 +1,38 @@
 package jenkins.plugins.slack;
 
-import hudson.ProxyConfiguration;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import jenkins.model.Jenkins;
+import java.util.regex.Pattern;
+import jenkins.plugins.slack.dispatch.PublishExecutor;
+import jenkins.plugins.slack.http.FormJsonEntity;
+import jenkins.plugins.slack.http.HttpClientProvider;
+import jenkins.plugins.slack.http.JsonEntity;
+import jenkins.plugins.slack.http.RateLimiter;
+import jenkins.plugins.slack.http.RetryPolicy;
+import jenkins.plugins.slack.payload.ChatMessage;
+import jenkins.plugins.slack.payload.Payloads;
+import jenkins.plugins.slack.payload.SlackMessage;
 import net.sf.json.JSONArray;
-import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.NameValuePair;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.conn.routing.HttpRoutePlanner;
-import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
-import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 
@@ -36,6 +40,13 @@ public class StandardSlackService implements SlackService {
 
     private static final Logger logger = Logger.getLogger(StandardSlackService.class.getName());
 
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_THROTTLED_ATTEMPTS = 5;
+    private static final Pattern CHANNEL_ID = Pattern.compile("[A-Z0-9]+");
+    private static final PostResult NOT_SENT = new PostResult(false, null);
+
     private String host = "slack.com";
     private String baseUrl;
     private String teamDomain;
@@ -44,6 +55,7 @@ public class StandardSlackService implements SlackService {
     private boolean replyBroadcast;
     private String responseString;
     private String populatedToken;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
 
     /**
      * @deprecated use {@link #StandardSlackService(String, String, boolean, String, boolean, String)} instead}
@@ -113,109 +125,295 @@ public class StandardSlackService implements SlackService {
     }
 
     public boolean publish(String message, String color) {
-        //prepare attachments first
-        JSONObject field = new JSONObject();
-        field.put("short", false);
-        field.put("value", message);
+        return publish(SlackMessage.colored(message, color));
+    }
 
-        JSONArray fields = new JSONArray();
-        fields.add(field);
+    @Override
+    public boolean publish(String message, JSONArray attachments, String color) {
+        return publish(new SlackMessage(message, Payloads.fromJSONArray(attachments), color));
+    }
 
-        JSONObject attachment = new JSONObject();
-        attachment.put("fallback", message);
-        attachment.put("color", color);
-        attachment.put("fields", fields);
-        JSONArray mrkdwn = new JSONArray();
-        mrkdwn.add("pretext");
-        mrkdwn.add("text");
-        mrkdwn.add("fields");
-        attachment.put("mrkdwn_in", mrkdwn);
-        JSONArray attachments = new JSONArray();
-        attachments.add(attachment);
+    @Override
+    public boolean publish(SlackMessage message) {
+        return publishAsync(message).join();
+    }
 
-        return publish(null, attachments, color);
+    /**
+     * Posts to every room without waiting for Slack to answer. The last response received is available from
+     * {@link #getResponseString()} once the returned future has completed.
+     */
+    @Override
+    public CompletableFuture<Boolean> publishAsync(SlackMessage message) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        return cancellable(publishAll(Collections.singletonList(message), cancelled)
+                .thenApply(results -> results.get(0).isSuccess()), cancelled);
     }
 
+    /**
+     * Replaces a message posted earlier by the bot user with chat.update. Incoming webhooks cannot edit messages,
+     * so without a bot user nothing is sent.
+     *
+     * @throws IllegalArgumentException when the channel is not the id of a single channel, such as a list of rooms or
+     *                                  a {@code #name}, which chat.update does not accept
+     */
     @Override
-    public boolean publish(String message, JSONArray attachments, String color) {
-        boolean result = true;
+    public CompletableFuture<Boolean> updateAsync(String channel, String ts, SlackMessage message) {
+        if (channel == null || !CHANNEL_ID.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Updating a message needs the id of its channel, such as the channelId"
+                    + " of the response to the post, not " + channel);
+        }
+        if (!botUser || !StringUtils.isEmpty(baseUrl)) {
+            logger.warning("Updating a Slack message needs a bot user posting through the Slack Web API");
+            return CompletableFuture.completedFuture(false);
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        return cancellable(send(channelOf(channel), () -> createUpdate(channel, ts, message), new Delivery(cancelled), 0)
+                .thenApply(postResult -> {
+                    if (postResult.responseString != null) {
+                        responseString = postResult.responseString;
+                    }
+                    return postResult.success;
+                }), cancelled);
+    }
+
+    @Override
+    public boolean update(String channel, String ts, SlackMessage message) {
+        return updateAsync(channel, ts, message).join();
+    }
+
+    /**
+     * Posts the messages to the rooms concurrently, while the messages to each room are posted one after the other
+     * so that they show in order. The posts share the pooled connections.
+     */
+    @Override
+    public CompletableFuture<List<PublishResult>> publishAll(List<SlackMessage> messages) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        return cancellable(publishAll(messages, cancelled), cancelled);
+    }
+
+    private CompletableFuture<List<PublishResult>> publishAll(List<SlackMessage> messages, AtomicBoolean cancelled) {
+        List<List<CompletableFuture<PostResult>>> postsByMessage = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            postsByMessage.add(new ArrayList<>(roomIds.length));
+        }
+        List<CompletableFuture<PostResult>> allPosts = new ArrayList<>(messages.size() * roomIds.length);
         for (String roomId : roomIds) {
-            HttpPost post;
-            String url;
-            String threadTs = "";
-            List<NameValuePair> nvps = new ArrayList<>();
-
-            //thread_ts is passed once with roomId: Ex: roomId:threadTs
-            String[] splitThread = roomId.split("[:]+");
-            if (splitThread.length > 1) {
-                roomId = splitThread[0];
-                threadTs = splitThread[1];
+            CompletableFuture<PostResult> previous = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < messages.size(); i++) {
+                SlackMessage message = messages.get(i);
+                CompletableFuture<PostResult> post = previous
+                        .handle((postResult, error) -> null)
+                        .thenCompose(ignored -> send(channelOf(roomId), () -> createPost(roomId, message), new Delivery(cancelled), 0));
+                postsByMessage.get(i).add(post);
+                allPosts.add(post);
+                previous = post;
             }
-            //prepare post methods for both requests types
-            if (!botUser || !StringUtils.isEmpty(baseUrl)) {
-                url = "https://" + teamDomain + "." + host + "/services/hooks/jenkins-ci?token=" + populatedToken;
-                if (!StringUtils.isEmpty(baseUrl)) {
-                    url = baseUrl + populatedToken;
-                }
-                post = new HttpPost(url);
-                JSONObject json = new JSONObject();
-
-                json.put("channel", roomId);
-                if (StringUtils.isNotEmpty(message)) {
-                    json.put("text", message);
-                }
-                json.put("attachments", attachments);
-                json.put("link_names", "1");
-
-                nvps.add(new BasicNameValuePair("payload", json.toString()));
-            } else {
-                url = "https://slack.com/api/chat.postMessage?token=" + populatedToken +
-                        "&channel=" + roomId.replace("#", "") +
-                        "&link_names=1" +
-                        "&as_user=true";
-                if (threadTs.length() > 1) {
-                    url += "&thread_ts=" + threadTs;
+        }
+        return CompletableFuture.allOf(allPosts.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<PublishResult> results = new ArrayList<>(messages.size());
+            for (List<CompletableFuture<PostResult>> posts : postsByMessage) {
+                boolean success = true;
+                String messageResponse = null;
+                for (CompletableFuture<PostResult> post : posts) {
+                    PostResult postResult = post.join();
+                    if (postResult.responseString != null) {
+                        messageResponse = postResult.responseString;
+                    }
+                    success &= postResult.success;
                 }
-                if (replyBroadcast) {
-                    url += "&reply_broadcast=true";
+                if (messageResponse != null) {
+                    responseString = messageResponse;
                 }
-                try {
-                    if (StringUtils.isNotEmpty(message)) {
-                        url += "&text=" + URLEncoder.encode(message, StandardCharsets.UTF_8.name());
+                results.add(new PublishResult(success, messageResponse));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Stops the posts behind the future, including scheduled retries, when the future is cancelled. A post already
+     * on the wire may still be delivered.
+     */
+    private static <T> CompletableFuture<T> cancellable(CompletableFuture<T> future, AtomicBoolean cancelled) {
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                cancelled.set(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sends a request for a channel once the rate limiter allows it. When Slack still answers with HTTP 429 the
+     * request is rescheduled after the Retry-After period instead of being dropped, and transient failures are
+     * retried as allowed by the {@link RetryPolicy}. Retries are scheduled, so no thread waits in between.
+     *
+     * @param request creates the request, again for every attempt
+     */
+    private CompletableFuture<PostResult> send(String channel, Supplier<HttpPost> request, Delivery delivery, long delay) {
+        RateLimiter rateLimiter = RateLimiter.get();
+        long wait = Math.max(delay, rateLimiter.reserve(populatedToken, channel));
+        if (wait > delay) {
+            logger.fine("Rate limiting posts to " + channel + ", waiting " + wait + "ms");
+        }
+        RetryPolicy retryPolicy = this.retryPolicy;
+        return PublishExecutor.schedule(() -> delivery.isCancelled() ? CompletableFuture.completedFuture(NOT_SENT)
+                : post(request.get()), wait)
+                .thenCompose(Function.identity())
+                .exceptionally(error -> {
+                    // dropped by the publish executor because too many posts are waiting
+                    logger.log(Level.WARNING, "Could not post to " + channel, error);
+                    return NOT_SENT;
+                })
+                .thenCompose(postResult -> {
+                    if (delivery.isCancelled()) {
+                        return CompletableFuture.completedFuture(postResult);
                     }
-                    url += "&attachments=" + URLEncoder.encode(attachments.toString(), StandardCharsets.UTF_8.name());
-                } catch (UnsupportedEncodingException e) {
-                    logger.log(Level.ALL, "Error while encoding payload: " + e.getMessage());
-                }
-                post = new HttpPost(url);
+                    if (postResult.isThrottled()) {
+                        rateLimiter.throttle(populatedToken, channel, postResult.retryAfterMillis);
+                        if (delivery.throttledAttempts >= MAX_THROTTLED_ATTEMPTS || postResult.retryAfterMillis > MAX_RETRY_AFTER_MILLIS) {
+                            rateLimiter.recordDropped();
+                            logger.log(Level.WARNING, "Slack kept rate limiting posts to " + channel + ", giving up");
+                            return CompletableFuture.completedFuture(postResult);
+                        }
+                        logger.fine("Slack rate limited posts to " + channel + ", retrying after " + postResult.retryAfterMillis + "ms");
+                        delivery.throttledAttempts++;
+                        return send(channel, request, delivery, 0);
+                    }
+                    delivery.attempts++;
+                    if (!postResult.transientFailure) {
+                        return CompletableFuture.completedFuture(postResult);
+                    }
+                    long backoff = retryPolicy.delayBeforeRetry(delivery.attempts);
+                    if (!retryPolicy.canRetry(delivery.attempts, delivery.elapsedMillis(), backoff)) {
+                        logger.log(Level.WARNING, "Giving up posting to " + channel + " after " + delivery.attempts + " attempts");
+                        return CompletableFuture.completedFuture(postResult);
+                    }
+                    logger.fine("Posting to " + channel + " failed, retrying in " + backoff + "ms");
+                    return send(channel, request, delivery, backoff);
+                });
+    }
+
+    private static String channelOf(String roomId) {
+        int threadSeparator = roomId.indexOf(':');
+        String channel = threadSeparator >= 0 ? roomId.substring(0, threadSeparator) : roomId;
+        return channel.replace("#", "");
+    }
+
+    /**
+     * Sends the post on the calling thread, which is blocked until Slack has answered.
+     */
+    CompletableFuture<PostResult> post(HttpPost post) {
+        try (CloseableHttpResponse response = getHttpClient().execute(post)) {
+            return CompletableFuture.completedFuture(toPostResult(response));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure(e));
+        } finally {
+            post.releaseConnection();
+        }
+    }
+
+    PostResult toPostResult(HttpResponse response) throws IOException {
+        String postResponseString = null;
+        int responseCode = response.getStatusLine().getStatusCode();
+        long retryAfterMillis = -1;
+        if (responseCode == SC_TOO_MANY_REQUESTS) {
+            retryAfterMillis = parseRetryAfter(response.getFirstHeader("Retry-After"));
+        }
+        HttpEntity entity = response.getEntity();
+        if (botUser && entity != null) {
+            postResponseString = EntityUtils.toString(entity);
+        } else {
+            // fully read the body so the connection can go back to the pool
+            EntityUtils.consume(entity);
+        }
+        if (retryAfterMillis >= 0) {
+            return new PostResult(false, postResponseString, retryAfterMillis, false);
+        } else if (responseCode != HttpStatus.SC_OK) {
+            logger.log(Level.WARNING, "Slack post may have failed. Response: " + postResponseString);
+            logger.log(Level.WARNING, "Response Code: " + responseCode);
+            return new PostResult(false, postResponseString, -1, RetryPolicy.isTransient(responseCode));
+        } else {
+            logger.fine("Posting succeeded");
+            return new PostResult(true, postResponseString);
+        }
+    }
+
+    static PostResult failure(Exception e) {
+        logger.log(Level.WARNING, "Error posting to Slack", e);
+        return new PostResult(false, null, -1, RetryPolicy.isTransient(e));
+    }
+
+    /**
+     * Creates the request posting a message to a room, with the message encoded as the webhook payload or, for a bot
+     * user, as the JSON body of chat.postMessage authenticated with the token as a bearer token. Either way the body
+     * is serialized while the request is sent.
+     */
+    HttpPost createPost(String roomId, SlackMessage message) {
+        HttpPost post;
+        String url;
+        String threadTs = "";
+
+        //thread_ts is passed once with roomId: Ex: roomId:threadTs
+        String[] splitThread = roomId.split("[:]+");
+        if (splitThread.length > 1) {
+            roomId = splitThread[0];
+            threadTs = splitThread[1];
+        }
+        String text = StringUtils.isNotEmpty(message.getText()) ? message.getText() : null;
+        //prepare post methods for both requests types
+        if (!botUser || !StringUtils.isEmpty(baseUrl)) {
+            url = "https://" + teamDomain + "." + host + "/services/hooks/jenkins-ci?token=" + populatedToken;
+            if (!StringUtils.isEmpty(baseUrl)) {
+                url = baseUrl + populatedToken;
             }
-            logger.fine("Posting: to " + roomId + " on " + teamDomain + " using " + url + ": " + attachments.toString() + " " + color);
-            CloseableHttpClient client = getHttpClient();
+            post = new HttpPost(url);
+            post.setEntity(new FormJsonEntity("payload", ChatMessage.webhook(roomId, text, message.getAttachments())));
+        } else {
+            url = "https://" + host + "/api/chat.postMessage";
+            post = new HttpPost(url);
+            ChatMessage chatMessage = ChatMessage.botUser(roomId.replace("#", ""), threadTs.length() > 1 ? threadTs : null,
+                    replyBroadcast, text, message.getAttachments());
+            post.setHeader("Authorization", "Bearer " + populatedToken);
+            post.setEntity(new JsonEntity(chatMessage));
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Posting: to " + roomId + " on " + teamDomain + " using " + url + ": " + Payloads.toJson(message.getAttachments()) + " " + message.getColor());
+        }
+        return post;
+    }
 
-            try {
-                post.setEntity(new UrlEncodedFormEntity(nvps, "UTF-8"));
-                CloseableHttpResponse response = client.execute(post);
+    /**
+     * Creates the request replacing the message {@code ts} of {@code channel} through chat.update.
+     */
+    HttpPost createUpdate(String channel, String ts, SlackMessage message) {
+        HttpPost post = new HttpPost("https://" + host + "/api/chat.update");
+        String text = StringUtils.isNotEmpty(message.getText()) ? message.getText() : null;
+        post.setHeader("Authorization", "Bearer " + populatedToken);
+        post.setEntity(new JsonEntity(ChatMessage.update(channel.replace("#", ""), ts, text, message.getAttachments())));
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Updating: " + ts + " in " + channel + ": " + Payloads.toJson(message.getAttachments()) + " " + message.getColor());
+        }
+        return post;
+    }
 
-                int responseCode = response.getStatusLine().getStatusCode();
-                HttpEntity entity = response.getEntity();
-                if (botUser && entity != null) {
-                    responseString = EntityUtils.toString(entity);
-                }
-                if (responseCode != HttpStatus.SC_OK) {
-                    logger.log(Level.WARNING, "Slack post may have failed. Response: " + responseString);
-                    logger.log(Level.WARNING, "Response Code: " + responseCode);
-                    result = false;
-                } else {
-                    logger.fine("Posting succeeded");
-                }
-            } catch (Exception e) {
-                logger.log(Level.WARNING, "Error posting to Slack", e);
-                result = false;
-            } finally {
-                post.releaseConnection();
+    /**
+     * @return the delay Slack asked for in milliseconds, which can be given either in seconds or as an HTTP date
+     */
+    static long parseRetryAfter(Header retryAfter) {
+        if (retryAfter == null || StringUtils.isBlank(retryAfter.getValue())) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        String value = retryAfter.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            if (date == null) {
+                return DEFAULT_RETRY_AFTER_MILLIS;
             }
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
         }
-        return result;
     }
 
     private String getTokenToUse(String authTokenCredentialId, String token) {
@@ -231,33 +429,99 @@ public class StandardSlackService implements SlackService {
         return token;
     }
 
+    /**
+     * @return the shared pooled client, which must not be closed by the caller
+     */
     protected CloseableHttpClient getHttpClient() {
-        final HttpClientBuilder clientBuilder = HttpClients.custom();
-        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-
-        Jenkins jenkins = Jenkins.getInstanceOrNull();
-        if (jenkins != null) {
-            ProxyConfiguration proxy = jenkins.proxy;
-            if (proxy != null) {
-                final HttpHost proxyHost = new HttpHost(proxy.name, proxy.port);
-                final HttpRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxyHost);
-                clientBuilder.setRoutePlanner(routePlanner);
-
-                String username = proxy.getUserName();
-                String password = proxy.getPassword();
-                // Consider it to be passed if username specified. Sufficient?
-                if (username != null && !"".equals(username.trim())) {
-                    logger.info("Using proxy authentication (user=" + username + ")");
-                    credentialsProvider.setCredentials(new AuthScope(proxyHost),
-                            new UsernamePasswordCredentials(username, password));
-                }
-            }
-        }
-        return clientBuilder.build();
+        return HttpClientProvider.get();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getTeamDomain() {
+        return teamDomain;
+    }
+
+    public boolean isBotUser() {
+        return botUser;
+    }
+
+    /**
+     * @return the rooms to notify, separated by commas
+     */
+    public String getRoomId() {
+        return String.join(",", roomIds);
+    }
+
+    public boolean isReplyBroadcast() {
+        return replyBroadcast;
+    }
+
+    /**
+     * @return the token used for authentication, only meant to be stored encrypted
+     */
+    public String getPopulatedToken() {
+        return populatedToken;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @param retryPolicy how transient failures are retried, {@code null} to use {@link RetryPolicy#DEFAULT}
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.DEFAULT;
     }
 
     void setHost(String host) {
         this.host = host;
     }
+
+    static final class PostResult {
+        private final boolean success;
+        private final String responseString;
+        private final long retryAfterMillis;
+        private final boolean transientFailure;
+
+        PostResult(boolean success, String responseString) {
+            this(success, responseString, -1, false);
+        }
+
+        PostResult(boolean success, String responseString, long retryAfterMillis, boolean transientFailure) {
+            this.success = success;
+            this.responseString = responseString;
+            this.retryAfterMillis = retryAfterMillis;
+            this.transientFailure = transientFailure;
+        }
+
+        boolean isThrottled() {
+            return retryAfterMillis >= 0;
+        }
+    }
+
+    /**
+     * Progress of posting one message to one room, carried across scheduled retries.
+     */
+    private static final class Delivery {
+        private final long startedAt = System.nanoTime();
+        private final AtomicBoolean cancelled;
+        private int attempts;
+        private int throttledAttempts;
+
+        Delivery(AtomicBoolean cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package jenkins.plugins.slack;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Cause;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import jenkins.model.Jenkins;
+
+/**
+ * Finds the build whose changes are listed for a build without changes, by following the upstream causes.
+ *
+ * At most {@link #MAX_DEPTH} upstream builds are followed. Which build was found is remembered for every upstream
+ * build on the way, so that the other downstream builds of an upstream build do not follow the chain again. That no
+ * build was found is only remembered when the chain ended, not when the walk stopped at the depth cap or at an
+ * upstream build that could not be looked up.
+ */
+final class UpstreamChanges {
+
+    static final int MAX_DEPTH = 10;
+    private static final int MAX_REMEMBERED = 256;
+    private static final String NOT_FOUND = "";
+
+    private static final UpstreamChanges INSTANCE = new UpstreamChanges((project, number) -> {
+        AbstractProject<?, ?> upstream = Jenkins.get().getItemByFullName(project, AbstractProject.class);
+        return upstream != null ? upstream.getBuildByNumber(number) : null;
+    });
+
+    private final Builds builds;
+    /** The build with changes found for an upstream build, both as project#number */
+    private final Map<String, String> found = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_REMEMBERED;
+        }
+    };
+
+    UpstreamChanges(Builds builds) {
+        this.builds = builds;
+    }
+
+    static UpstreamChanges get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the build itself if it has changes, else the closest upstream build with changes, or null if there is
+     * none within {@link #MAX_DEPTH} upstream builds
+     */
+    @CheckForNull
+    AbstractBuild<?, ?> findBuildWithChanges(AbstractBuild<?, ?> build) {
+        if (!ChangeSetSummary.of(build).isEmpty()) {
+            return build;
+        }
+        Set<String> visited = new HashSet<>();
+        visited.add(key(build));
+        List<String> followed = new ArrayList<>();
+        AbstractBuild<?, ?> withChanges = null;
+        // whether the chain really ended without changes, rather than at the depth cap or a build that could not be
+        // looked up, which a shorter walk or a later one could get past
+        boolean ended = false;
+        AbstractBuild<?, ?> current = build;
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            Cause.UpstreamCause cause = current.getCause(Cause.UpstreamCause.class);
+            if (cause == null) {
+                ended = true;
+                break;
+            }
+            AbstractBuild<?, ?> upstream = builds.get(cause.getUpstreamProject(), cause.getUpstreamBuild());
+            if (upstream == null) {
+                break;
+            }
+            String key = key(upstream);
+            if (!visited.add(key)) {
+                ended = true;
+                break;
+            }
+            String remembered;
+            synchronized (found) {
+                remembered = found.get(key);
+            }
+            if (remembered != null) {
+                if (remembered.equals(NOT_FOUND)) {
+                    ended = true;
+                } else {
+                    withChanges = lookup(remembered);
+                }
+                break;
+            }
+            followed.add(key);
+            if (!ChangeSetSummary.of(upstream).isEmpty()) {
+                withChanges = upstream;
+                break;
+            }
+            current = upstream;
+        }
+        if (withChanges != null || ended) {
+            String result = withChanges != null ? key(withChanges) : NOT_FOUND;
+            synchronized (found) {
+                for (String key : followed) {
+                    found.put(key, result);
+                }
+            }
+        }
+        return withChanges;
+    }
+
+    @CheckForNull
+    private AbstractBuild<?, ?> lookup(String key) {
+        int separator = key.lastIndexOf('#');
+        if (separator < 0) {
+            return null;
+        }
+        return builds.get(key.substring(0, separator), Integer.parseInt(key.substring(separator + 1)));
+    }
+
+    private static String key(AbstractBuild<?, ?> build) {
+        return build.getProject().getFullName() + "#" + build.getNumber();
+    }
+
+    interface Builds {
+        @CheckForNull
+        AbstractBuild<?, ?> get(String project, int number);
+    }
+}
@@ -7,11 +7,20 @@ import jenkins.plugins.slack.logging.BuildKey;
 
 public class Context {
     private final AbstractBuild<?, ?> current;
-    private final AbstractBuild<?, ?> previous;
+    private final Result previousResult;
 
     public Context(AbstractBuild<?, ?> current, AbstractBuild<?, ?> previous) {
         this.current = current;
-        this.previous = previous;
+        this.previousResult = previous != null ? previous.getResult() : null;
+    }
+
+    /**
+     * Compares the given build with the last completed build before it that was not aborted, as known to the
+     * {@link PreviousBuildIndex}.
+     */
+    public Context(AbstractBuild<?, ?> current) {
+        this.current = current;
+        this.previousResult = PreviousBuildIndex.previousNonAbortedResult(current);
     }
 
     public String currentKey() {
@@ -19,10 +28,10 @@ public class Context {
     }
 
     public Result previousResultOrSuccess() {
-        if (previous == null || previous.getResult() == null) {
+        if (previousResult == null) {
             return Result.SUCCESS;
         }
-        return previous.getResult();
+        return previousResult;
     }
 
     @Nullable
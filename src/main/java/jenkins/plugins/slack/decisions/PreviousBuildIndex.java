@@ -0,0 +1,145 @@
+package jenkins.plugins.slack.decisions;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Knows the last completed, non-aborted build of each job, so that finding the build a new build is compared with
+ * does not walk back through the build history, loading every aborted build on the way from disk.
+ *
+ * A job is indexed the first time the previous build of its last build is looked up, from then on the index is kept up
+ * to date as builds complete. The entry a completed build replaces is kept with it, as the notifications of a build
+ * are sent after the build has been indexed. Builds that are not the last build of their job, or whose job has a newer
+ * completed build, are looked up the slow way.
+ */
+@Extension
+public class PreviousBuildIndex extends RunListener<Run<?, ?>> {
+
+    private static final Completed NONE = new Completed(0, null, null);
+
+    private static final Map<Job<?, ?>, Completed> lastNonAborted = new WeakHashMap<>();
+
+    /**
+     * @return the last completed build before the given build that was not aborted, or null if there is none
+     */
+    @CheckForNull
+    @SuppressWarnings("unchecked")
+    public static <R extends Run<?, ?>> R previousNonAbortedBuild(R build) {
+        Completed previous = lookup(build);
+        if (previous == NONE) {
+            return null;
+        }
+        if (previous != null) {
+            Run<?, ?> run = build.getParent().getBuildByNumber(previous.number);
+            if (run != null) {
+                return (R) run;
+            }
+        }
+        return (R) walkBack(build);
+    }
+
+    /**
+     * @return the result of the last completed build before the given build that was not aborted, or null if there
+     * is none
+     */
+    @CheckForNull
+    public static Result previousNonAbortedResult(Run<?, ?> build) {
+        Completed previous = lookup(build);
+        if (previous != null) {
+            return previous.result;
+        }
+        Run<?, ?> run = walkBack(build);
+        return run != null ? run.getResult() : null;
+    }
+
+    @Override
+    public void onCompleted(Run<?, ?> run, @Nonnull TaskListener listener) {
+        Result result = run.getResult();
+        if (result == null || result == Result.ABORTED) {
+            return;
+        }
+        synchronized (lastNonAborted) {
+            Completed indexed = lastNonAborted.get(run.getParent());
+            // a job that is not indexed yet may have newer completed builds than this one
+            if (indexed != null && indexed.number < run.getNumber()) {
+                lastNonAborted.put(run.getParent(), new Completed(run.getNumber(), result, indexed.withoutBefore()));
+            }
+        }
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+        synchronized (lastNonAborted) {
+            Completed indexed = lastNonAborted.get(run.getParent());
+            if (indexed != null && indexed.number == run.getNumber()) {
+                lastNonAborted.remove(run.getParent());
+            } else if (indexed != null && indexed.before != null && indexed.before.number == run.getNumber()) {
+                lastNonAborted.put(run.getParent(), indexed.withoutBefore());
+            }
+        }
+    }
+
+    @CheckForNull
+    private static Completed lookup(Run<?, ?> build) {
+        Job<?, ?> job = build.getParent();
+        if (job == null) {
+            return null;
+        }
+        Completed previous;
+        synchronized (lastNonAborted) {
+            previous = lastNonAborted.get(job);
+        }
+        if (previous == null) {
+            return null;
+        }
+        if (previous.number == build.getNumber()) {
+            // the build itself has already been indexed
+            return previous.before;
+        }
+        return previous.number < build.getNumber() ? previous : null;
+    }
+
+    private static Run<?, ?> walkBack(Run<?, ?> build) {
+        Run<?, ?> previous = build.getPreviousCompletedBuild();
+        while (previous != null && previous.getResult() == Result.ABORTED) {
+            previous = previous.getPreviousCompletedBuild();
+        }
+        Job<?, ?> job = build.getParent();
+        // only the last build knows that no newer build has completed yet
+        if (job != null && job.getLastBuild() == build) {
+            Completed completed = previous != null
+                    ? new Completed(previous.getNumber(), previous.getResult(), null) : NONE;
+            synchronized (lastNonAborted) {
+                Completed indexed = lastNonAborted.get(job);
+                if (indexed == null || indexed.number < completed.number) {
+                    lastNonAborted.put(job, completed);
+                }
+            }
+        }
+        return previous;
+    }
+
+    private static final class Completed {
+        private final int number;
+        private final Result result;
+        private final Completed before;
+
+        Completed(int number, Result result, Completed before) {
+            this.number = number;
+            this.result = result;
+            this.before = before;
+        }
+
+        Completed withoutBefore() {
+            return before == null ? this : new Completed(number, result, null);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.model.Result;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.plugins.slack.SlackService;
+
+/**
+ * Merges bursts of build notifications for the same job and channel into a single summary message.
+ *
+ * The first notification posts right away and opens a window. Notifications arriving while the window is open are
+ * held back and posted together when it closes, as one summary such as
+ * "7 builds: 5 failed, 2 succeeded, latest #1234" followed by the latest build's message. A summary is also posted
+ * as soon as the batch is full. Posting a summary opens a new window, so a busy job posts at most once per window.
+ */
+public final class NotificationCoalescer {
+
+    private static final Logger logger = Logger.getLogger(NotificationCoalescer.class.getName());
+
+    public static final int DEFAULT_MAX_BATCH = 20;
+
+    private static final NotificationCoalescer INSTANCE = new NotificationCoalescer(
+            (task, delayMillis) -> PublishExecutor.get().schedule(task, delayMillis, TimeUnit.MILLISECONDS));
+
+    private final Scheduler scheduler;
+    private final Map<String, Window> windows = new HashMap<>();
+
+    NotificationCoalescer(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public static NotificationCoalescer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param key          identifies the job and channel the notification is for
+     * @param windowMillis how long notifications are held back after one was posted
+     * @param maxBatch     how many held back notifications are merged at most into one summary
+     */
+    public void submit(String key, long windowMillis, int maxBatch, Event event) {
+        boolean postNow = false;
+        List<Event> batch = null;
+        synchronized (this) {
+            Window window = windows.get(key);
+            if (window == null) {
+                window = new Window();
+                windows.put(key, window);
+                scheduleClose(key, window, windowMillis);
+                postNow = true;
+            } else {
+                window.pending.add(event);
+                if (window.pending.size() >= Math.max(1, maxBatch)) {
+                    batch = window.drain();
+                }
+            }
+        }
+        if (postNow) {
+            publish(event.message, event);
+        } else if (batch != null) {
+            publish(batch);
+        }
+    }
+
+    synchronized int getOpenWindowCount() {
+        return windows.size();
+    }
+
+    private void scheduleClose(String key, Window window, long windowMillis) {
+        scheduler.schedule(() -> close(key, window, windowMillis), windowMillis);
+    }
+
+    private void close(String key, Window window, long windowMillis) {
+        List<Event> batch;
+        synchronized (this) {
+            batch = window.drain();
+            if (batch.isEmpty()) {
+                windows.remove(key, window);
+                return;
+            }
+            scheduleClose(key, window, windowMillis);
+        }
+        publish(batch);
+    }
+
+    private void publish(List<Event> batch) {
+        Event latest = batch.get(batch.size() - 1);
+        if (batch.size() == 1) {
+            publish(latest.message, latest);
+        } else {
+            publish(summarize(batch) + "\n" + latest.message, latest);
+        }
+    }
+
+    private static void publish(String message, Event event) {
+        try {
+            event.slackService.publish(message, event.color);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Error posting coalesced Slack notification for build #" + event.number, e);
+        }
+    }
+
+    /**
+     * @return a line such as "7 builds: 5 failed, 2 succeeded, latest #1234"
+     */
+    static String summarize(List<Event> batch) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String outcome : new String[]{"failed", "unstable", "aborted", "not built", "succeeded"}) {
+            counts.put(outcome, 0);
+        }
+        for (Event event : batch) {
+            counts.merge(outcome(event.result), 1, Integer::sum);
+        }
+        StringBuilder summary = new StringBuilder().append(batch.size()).append(" builds: ");
+        String separator = "";
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() > 0) {
+                summary.append(separator).append(count.getValue()).append(' ').append(count.getKey());
+                separator = ", ";
+            }
+        }
+        return summary.append(separator).append("latest #").append(batch.get(batch.size() - 1).number).toString();
+    }
+
+    private static String outcome(Result result) {
+        if (result == Result.SUCCESS) {
+            return "succeeded";
+        } else if (result == Result.UNSTABLE) {
+            return "unstable";
+        } else if (result == Result.ABORTED) {
+            return "aborted";
+        } else if (result == Result.NOT_BUILT) {
+            return "not built";
+        }
+        return "failed";
+    }
+
+    /**
+     * A rendered build notification and where to post it.
+     */
+    public static final class Event {
+        private final int number;
+        private final Result result;
+        private final String message;
+        private final String color;
+        private final SlackService slackService;
+
+        public Event(int number, Result result, String message, String color, SlackService slackService) {
+            this.number = number;
+            this.result = result;
+            this.message = message;
+            this.color = color;
+            this.slackService = slackService;
+        }
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private static final class Window {
+        private List<Event> pending = new ArrayList<>();
+
+        List<Event> drain() {
+            List<Event> drained = pending;
+            pending = new ArrayList<>();
+            return drained;
+        }
+    }
+}
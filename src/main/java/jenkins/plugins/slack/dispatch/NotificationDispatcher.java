@@ -0,0 +1,216 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.plugins.slack.SlackNotifier;
+
+/**
+ * Plugin-wide bounded queue that sends notifications from a small pool of worker threads,
+ * so that build executors never wait on the Slack API.
+ */
+public final class NotificationDispatcher {
+
+    private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 500;
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+    static final int WORKERS = 4;
+    static final long DRAIN_TIMEOUT_SECONDS = 30;
+    /**
+     * Milestone attained once queued notifications have been sent or given up on during shutdown.
+     */
+    public static final String DRAINED = "slack-notification-dispatcher-drained";
+
+    private static NotificationDispatcher instance;
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dropped = new AtomicLong();
+
+    NotificationDispatcher(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Slack notification dispatcher"),
+                rejectionHandler(overflowPolicy));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the dispatcher matching the current global configuration. When the queue settings change
+     * a new dispatcher replaces the old one, which keeps running until it has sent what it already accepted.
+     */
+    public static synchronized NotificationDispatcher get() {
+        int capacity = DEFAULT_CAPACITY;
+        OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins != null) {
+            SlackNotifier.DescriptorImpl descriptor = jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+            if (descriptor != null) {
+                capacity = descriptor.getDispatchQueueCapacity();
+                overflowPolicy = descriptor.getDispatchOverflowPolicy();
+            }
+        }
+        if (instance == null || instance.capacity != capacity || instance.overflowPolicy != overflowPolicy) {
+            if (instance != null) {
+                instance.executor.shutdown();
+            }
+            instance = new NotificationDispatcher(capacity, overflowPolicy);
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a notification to be sent by a worker thread.
+     *
+     * @param description human-readable description of the notification, used when it has to be dropped
+     * @param notification the work that sends the notification
+     * @return false if the notification was rejected because the queue was full or shutting down
+     */
+    public boolean dispatch(String description, Runnable notification) {
+        return dispatch(description, notification, null);
+    }
+
+    /**
+     * Queues a notification to be sent by a worker thread.
+     *
+     * @param description human-readable description of the notification, used when it has to be dropped
+     * @param notification the work that sends the notification
+     * @param whenDropped called if the notification is dropped because the queue is full, may be {@code null}
+     * @return false if the notification was rejected because the queue was full or shutting down
+     */
+    public boolean dispatch(String description, Runnable notification, Runnable whenDropped) {
+        Notification queued = new Notification(description, notification, whenDropped);
+        try {
+            executor.execute(queued);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Slack notification dispatcher is shutting down, dropping " + description);
+            return false;
+        }
+        return !queued.dropped;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops accepting notifications and gives the queued ones a chance to be sent before Jenkins stops.
+     */
+    @Terminator(attains = DRAINED)
+    public static synchronized void shutdown() throws InterruptedException {
+        if (instance == null) {
+            return;
+        }
+        NotificationDispatcher dispatcher = instance;
+        instance = null;
+        dispatcher.drain();
+    }
+
+    void drain() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            List<Runnable> pending = executor.shutdownNow();
+            logger.warning("Gave up waiting for Slack notifications to be sent, " + pending.size() + " were not sent");
+        }
+    }
+
+    private RejectedExecutionHandler rejectionHandler(OverflowPolicy overflowPolicy) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                return (r, e) -> {
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException("Slack notification dispatcher is shut down");
+                    }
+                    try {
+                        e.getQueue().put(r);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(ie);
+                    }
+                };
+            case DROP_NEWEST:
+                return (r, e) -> {
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException("Slack notification dispatcher is shut down");
+                    }
+                    drop(r);
+                };
+            case DROP_OLDEST:
+            default:
+                return (r, e) -> {
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException("Slack notification dispatcher is shut down");
+                    }
+                    Runnable oldest = e.getQueue().poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                    e.execute(r);
+                };
+        }
+    }
+
+    private void drop(Runnable r) {
+        if (r instanceof Notification) {
+            ((Notification) r).drop();
+        }
+        dropped.incrementAndGet();
+        logger.warning("Slack notification queue is full (capacity " + capacity + "), dropping " + r);
+    }
+
+    private static final class Notification implements Runnable {
+        private final String description;
+        private final Runnable delegate;
+        private final Runnable whenDropped;
+        private volatile boolean dropped;
+
+        Notification(String description, Runnable delegate, Runnable whenDropped) {
+            this.description = description;
+            this.delegate = delegate;
+            this.whenDropped = whenDropped;
+        }
+
+        void drop() {
+            dropped = true;
+            if (whenDropped != null) {
+                try {
+                    whenDropped.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Error dropping Slack notification for " + description, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                delegate.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Error sending Slack notification for " + description, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
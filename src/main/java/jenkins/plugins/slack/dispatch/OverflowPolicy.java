@@ -0,0 +1,24 @@
+package jenkins.plugins.slack.dispatch;
+
+import jenkins.plugins.slack.Messages;
+import org.jvnet.localizer.Localizable;
+
+/**
+ * Controls what happens to a notification when the dispatch queue is full.
+ */
+public enum OverflowPolicy {
+
+    BLOCK(Messages._OverflowPolicy_Block()),
+    DROP_OLDEST(Messages._OverflowPolicy_DropOldest()),
+    DROP_NEWEST(Messages._OverflowPolicy_DropNewest());
+
+    private final Localizable description;
+
+    OverflowPolicy(Localizable description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.plugins.slack.SlackNotifier;
+
+/**
+ * Bounded thread pool used to post a single message to several channels at the same time,
+ * and to post messages later without holding a thread while waiting.
+ *
+ * The delay queue of the pool is unbounded, so tasks are admitted through {@link #schedule} only while fewer than
+ * the dispatch queue capacity are waiting, and the dispatch overflow policy decides what happens to the others.
+ */
+public final class PublishExecutor {
+
+    private static final Logger logger = Logger.getLogger(PublishExecutor.class.getName());
+
+    static final int THREADS = 8;
+    private static final String THREAD_NAME = "Slack publisher";
+
+    private static ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Tasks admitted and not started yet, oldest first.
+     */
+    private static final Set<Task<?>> waiting = new LinkedHashSet<>();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private PublishExecutor() {
+    }
+
+    public static synchronized ScheduledExecutorService get() {
+        if (executor == null || executor.isShutdown()) {
+            executor = new ScheduledThreadPoolExecutor(THREADS,
+                    new NamingThreadFactory(new DaemonThreadFactory(), THREAD_NAME));
+            executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the task on the pool once the delay has passed.
+     *
+     * @param task         the work to run
+     * @param delayMillis  how long to wait before running it, 0 or less to run it as soon as a thread is free
+     * @return a future completed with the result of the task, or failed with a {@link RejectedExecutionException}
+     * when the task was dropped because too many are waiting
+     */
+    public static <T> CompletableFuture<T> schedule(Supplier<T> task, long delayMillis) {
+        int capacity = NotificationDispatcher.DEFAULT_CAPACITY;
+        OverflowPolicy overflowPolicy = NotificationDispatcher.DEFAULT_OVERFLOW_POLICY;
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins != null) {
+            SlackNotifier.DescriptorImpl descriptor = jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+            if (descriptor != null) {
+                capacity = descriptor.getDispatchQueueCapacity();
+                overflowPolicy = descriptor.getDispatchOverflowPolicy();
+            }
+        }
+        return schedule(task, delayMillis, capacity, overflowPolicy);
+    }
+
+    static <T> CompletableFuture<T> schedule(Supplier<T> task, long delayMillis, int capacity, OverflowPolicy overflowPolicy) {
+        Task<T> queued = new Task<>(task);
+        if (!admit(queued, capacity, overflowPolicy)) {
+            drop(queued, capacity);
+            return queued.future;
+        }
+        try {
+            if (delayMillis > 0) {
+                get().schedule(queued, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                get().execute(queued);
+            }
+        } catch (RejectedExecutionException e) {
+            start(queued);
+            queued.future.completeExceptionally(e);
+        }
+        return queued.future;
+    }
+
+    /**
+     * Makes room for the task as the overflow policy says. A publisher thread never waits, since it may be the one
+     * that would make room; it is running a task that was admitted already, such as a retry, so it goes over
+     * capacity instead.
+     *
+     * @return false if the task is dropped
+     */
+    private static boolean admit(Task<?> task, int capacity, OverflowPolicy overflowPolicy) {
+        Task<?> oldest = null;
+        synchronized (waiting) {
+            while (waiting.size() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    return false;
+                }
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    Iterator<Task<?>> iterator = waiting.iterator();
+                    oldest = iterator.next();
+                    iterator.remove();
+                    break;
+                }
+                if (Thread.currentThread().getName().startsWith(THREAD_NAME)) {
+                    break;
+                }
+                try {
+                    waiting.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            waiting.add(task);
+        }
+        if (oldest != null) {
+            drop(oldest, capacity);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the task was dropped before it could start
+     */
+    private static boolean start(Task<?> task) {
+        synchronized (waiting) {
+            if (!waiting.remove(task)) {
+                return false;
+            }
+            waiting.notifyAll();
+            return true;
+        }
+    }
+
+    private static void drop(Task<?> task, int capacity) {
+        dropped.incrementAndGet();
+        logger.warning("Too many Slack posts are waiting (capacity " + capacity + "), dropping one");
+        task.future.completeExceptionally(new RejectedExecutionException("Too many Slack posts are waiting"));
+    }
+
+    static int getWaitingCount() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private static final class Task<T> implements Runnable {
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!start(this)) {
+                return;
+            }
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    @Terminator(requires = NotificationDispatcher.DRAINED)
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
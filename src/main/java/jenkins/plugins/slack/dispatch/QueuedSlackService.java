@@ -0,0 +1,64 @@
+package jenkins.plugins.slack.dispatch;
+
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.outbox.Outbox;
+import jenkins.plugins.slack.payload.SlackMessage;
+import net.sf.json.JSONArray;
+
+/**
+ * Hands fully rendered messages to the {@link NotificationDispatcher} instead of posting them on the calling thread.
+ *
+ * Publishing returns as soon as the message is queued, so the result only says whether it was accepted,
+ * and no response from Slack is available. When the durable outbox is enabled the message is recorded in it
+ * before being queued, so that it is still sent if Jenkins restarts in the meantime.
+ */
+public class QueuedSlackService implements SlackService {
+
+    private final SlackService delegate;
+    private final String description;
+
+    /**
+     * @param delegate    the service that actually posts the message
+     * @param description human-readable description of what is being notified, e.g. the build key
+     */
+    public QueuedSlackService(SlackService delegate, String description) {
+        this.delegate = delegate;
+        this.description = description;
+    }
+
+    @Override
+    public boolean publish(String message) {
+        return dispatch(Outbox.record(delegate, description, message), () -> delegate.publish(message));
+    }
+
+    @Override
+    public boolean publish(String message, String color) {
+        return dispatch(Outbox.record(delegate, description, message, color), () -> delegate.publish(message, color));
+    }
+
+    @Override
+    public boolean publish(String message, JSONArray attachments, String color) {
+        return dispatch(Outbox.record(delegate, description, message, attachments, color),
+                () -> delegate.publish(message, attachments, color));
+    }
+
+    @Override
+    public boolean publish(SlackMessage message) {
+        return dispatch(Outbox.record(delegate, description, message), () -> delegate.publish(message));
+    }
+
+    private boolean dispatch(long outboxId, Runnable publish) {
+        return NotificationDispatcher.get().dispatch(description, () -> {
+            try {
+                publish.run();
+            } finally {
+                Outbox.ack(outboxId);
+            }
+        }, () -> Outbox.ack(outboxId));
+    }
+
+    @Override
+    public String getResponseString() {
+        return null;
+    }
+}
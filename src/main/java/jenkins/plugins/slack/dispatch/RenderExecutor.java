@@ -0,0 +1,129 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.init.Terminator;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.plugins.slack.SlackNotifier;
+import org.acegisecurity.Authentication;
+
+/**
+ * Bounded thread pool rendering notification messages, so that a slow token macro or changelog costs a build at most
+ * the render budget. A message not ready within the budget is replaced by a shorter fallback message.
+ */
+public final class RenderExecutor {
+
+    private static final Logger logger = Logger.getLogger(RenderExecutor.class.getName());
+
+    public static final int DEFAULT_BUDGET_SECONDS = 10;
+    static final int THREADS = 4;
+    static final int QUEUE_CAPACITY = 100;
+
+    private static ThreadPoolExecutor executor;
+
+    private RenderExecutor() {
+    }
+
+    static synchronized ThreadPoolExecutor get() {
+        if (executor == null || executor.isShutdown()) {
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Slack message renderer"));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * @return the render budget from the global configuration
+     */
+    public static long budgetMillis() {
+        int seconds = DEFAULT_BUDGET_SECONDS;
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins != null) {
+            SlackNotifier.DescriptorImpl descriptor = jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+            if (descriptor != null) {
+                seconds = descriptor.getRenderBudgetSeconds();
+            }
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Renders a message on the pool, waiting at most the budget for it. The fallback is rendered on the calling
+     * thread, it should only use what is cheap to compute.
+     *
+     * @param description  human-readable description of the message, used when it falls back
+     * @param renderer     renders the full message
+     * @param fallback     renders the message used when the full one is not ready in time or the pool is full
+     * @param budgetMillis how long to wait for the full message
+     * @return the full message, or the fallback one
+     */
+    public static String render(String description, Supplier<String> renderer, Supplier<String> fallback,
+                                long budgetMillis) {
+        // render with the permissions of the build, a pool thread has none of its own
+        Authentication authentication = Jenkins.getAuthentication();
+        ThreadPoolExecutor executor = get();
+        Future<String> future;
+        try {
+            future = executor.submit(() -> {
+                try (ACLContext ignored = ACL.as(authentication)) {
+                    return renderer.get();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, "Too many Slack messages being rendered, sending a short message for {0}",
+                    description);
+            return fallback.get();
+        }
+        try {
+            return future.get(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(executor, future);
+            logger.log(Level.WARNING, "Rendering the Slack message for {0} took more than {1} ms, sending a short message",
+                    new Object[]{description, budgetMillis});
+            return fallback.get();
+        } catch (InterruptedException e) {
+            cancel(executor, future);
+            Thread.currentThread().interrupt();
+            return fallback.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Interrupts the renderer, or removes it from the queue when it has not started so that it does not hold a slot.
+     */
+    private static void cancel(ThreadPoolExecutor executor, Future<String> future) {
+        future.cancel(true);
+        executor.purge();
+    }
+
+    @Terminator(requires = NotificationDispatcher.DRAINED)
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
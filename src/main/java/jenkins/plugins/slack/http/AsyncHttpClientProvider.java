@@ -0,0 +1,107 @@
+package jenkins.plugins.slack.http;
+
+import hudson.ProxyConfiguration;
+import hudson.init.Terminator;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jenkins.plugins.slack.dispatch.NotificationDispatcher;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+
+/**
+ * Holds the plugin-wide non-blocking HTTP client used by {@link jenkins.plugins.slack.AsyncSlackService}.
+ *
+ * A couple of I/O threads multiplex all connections, so the pool can be much larger than the blocking client's
+ * without costing a thread per post. Like {@link HttpClientProvider} the client is rebuilt when the Jenkins proxy
+ * configuration changes and shut down when Jenkins stops.
+ */
+public final class AsyncHttpClientProvider {
+
+    private static final Logger logger = Logger.getLogger(AsyncHttpClientProvider.class.getName());
+
+    static final int IO_THREADS = 2;
+    static final int MAX_TOTAL_CONNECTIONS = 200;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 100;
+
+    private static final SharedClient<CloseableHttpAsyncClient> client =
+            new SharedClient<>("Slack async HTTP client", AsyncHttpClientProvider::build);
+
+    private AsyncHttpClientProvider() {
+    }
+
+    /**
+     * Returns the shared started client, building a new one if none exists yet or the proxy settings have changed
+     * since it was built. Callers must not close the returned client.
+     */
+    public static CloseableHttpAsyncClient get() {
+        return client.get();
+    }
+
+    @Terminator(requires = NotificationDispatcher.DRAINED)
+    public static void shutdown() {
+        client.shutdown();
+    }
+
+    static void evictIdleConnections() {
+        client.evictIdleConnections();
+    }
+
+    private static SharedClient.Pooled<CloseableHttpAsyncClient> build(ProxyConfiguration proxy) {
+        final PoolingNHttpClientConnectionManager connectionManager = newConnectionManager();
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        final HttpAsyncClientBuilder clientBuilder = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(HttpClientProvider.KEEP_ALIVE_STRATEGY)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(HttpClientProvider.CONNECT_TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(HttpClientProvider.CONNECT_TIMEOUT_MILLIS)
+                        .setSocketTimeout(HttpClientProvider.SOCKET_TIMEOUT_MILLIS)
+                        .build());
+        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+
+        if (proxy != null) {
+            final HttpHost proxyHost = new HttpHost(proxy.name, proxy.port);
+            clientBuilder.setRoutePlanner(new DefaultProxyRoutePlanner(proxyHost));
+
+            String username = proxy.getUserName();
+            String password = proxy.getPassword();
+            if (username != null && !"".equals(username.trim())) {
+                logger.info("Using proxy authentication (user=" + username + ")");
+                credentialsProvider.setCredentials(new AuthScope(proxyHost),
+                        new UsernamePasswordCredentials(username, password));
+            }
+        }
+        CloseableHttpAsyncClient asyncClient = clientBuilder.build();
+        asyncClient.start();
+        return new SharedClient.Pooled<>(asyncClient, connectionManager, () -> {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(HttpClientProvider.IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private static PoolingNHttpClientConnectionManager newConnectionManager() {
+        try {
+            return new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                    .setIoThreadCount(IO_THREADS)
+                    .setConnectTimeout(HttpClientProvider.CONNECT_TIMEOUT_MILLIS)
+                    .setSoTimeout(HttpClientProvider.SOCKET_TIMEOUT_MILLIS)
+                    .build()));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not start the Slack async HTTP client", e);
+        }
+    }
+}
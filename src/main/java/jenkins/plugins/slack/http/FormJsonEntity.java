@@ -0,0 +1,108 @@
+package jenkins.plugins.slack.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import jenkins.plugins.slack.payload.Payloads;
+
+/**
+ * A form with a single parameter holding JSON, as incoming webhooks expect it. The JSON is serialized and
+ * URL encoded on the fly while the request is sent, so neither the JSON nor the encoded form exists as a string.
+ */
+public class FormJsonEntity extends StreamedEntity {
+
+    public static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] name;
+    private final Object payload;
+
+    /**
+     * @param name the name of the parameter, which must not need encoding
+     * @param payload an object Jackson can serialize
+     */
+    public FormJsonEntity(String name, Object payload) {
+        super(CONTENT_TYPE);
+        this.name = (name + "=").getBytes(StandardCharsets.US_ASCII);
+        this.payload = payload;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(name);
+        FormEncodingOutputStream encoded = new FormEncodingOutputStream(out);
+        Payloads.writer().writeValue(encoded, payload);
+        encoded.flush();
+    }
+
+    /**
+     * Encodes bytes as {@code application/x-www-form-urlencoded}, like {@link java.net.URLEncoder} does for UTF-8.
+     */
+    static final class FormEncodingOutputStream extends FilterOutputStream {
+
+        private final byte[] buffer = new byte[3 * 1024];
+        private int count;
+
+        FormEncodingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count + 3 > buffer.length) {
+                flushBuffer();
+            }
+            encode(b & 0xFF);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                if (count + 3 > buffer.length) {
+                    flushBuffer();
+                }
+                encode(bytes[i] & 0xFF);
+            }
+        }
+
+        private void encode(int b) {
+            if (isUnreserved(b)) {
+                buffer[count++] = (byte) b;
+            } else if (b == ' ') {
+                buffer[count++] = '+';
+            } else {
+                buffer[count++] = '%';
+                buffer[count++] = HEX[b >> 4];
+                buffer[count++] = HEX[b & 0xF];
+            }
+        }
+
+        private static boolean isUnreserved(int b) {
+            return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9'
+                    || b == '-' || b == '_' || b == '.' || b == '*';
+        }
+
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        /**
+         * Flushes without closing the connection's stream.
+         */
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package jenkins.plugins.slack.http;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jenkins.plugins.slack.dispatch.NotificationDispatcher;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Holds the plugin-wide pooled HTTP client used to talk to Slack.
+ *
+ * Connections are kept alive and reused between notifications, the client is only rebuilt when the Jenkins proxy
+ * configuration changes, the replaced client being closed once its posts are done, and it is shut down when Jenkins
+ * stops.
+ */
+public final class HttpClientProvider {
+
+    private static final Logger logger = Logger.getLogger(HttpClientProvider.class.getName());
+
+    static final int MAX_TOTAL_CONNECTIONS = 40;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    static final long DEFAULT_KEEP_ALIVE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10);
+    static final int SOCKET_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return keepAlive > 0 ? keepAlive : DEFAULT_KEEP_ALIVE_MILLIS;
+    };
+
+    private static final SharedClient<CloseableHttpClient> client =
+            new SharedClient<>("Slack HTTP client", HttpClientProvider::build);
+
+    private HttpClientProvider() {
+    }
+
+    /**
+     * Returns the shared client, building a new one if none exists yet or the proxy settings have changed since it
+     * was built. Callers must not close the returned client.
+     */
+    public static CloseableHttpClient get() {
+        return client.get();
+    }
+
+    @Terminator(requires = NotificationDispatcher.DRAINED)
+    public static void shutdown() {
+        client.shutdown();
+    }
+
+    static void evictIdleConnections() {
+        client.evictIdleConnections();
+    }
+
+    private static SharedClient.Pooled<CloseableHttpClient> build(ProxyConfiguration proxy) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        final HttpClientBuilder clientBuilder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(CONNECT_TIMEOUT_MILLIS)
+                        .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                        .build());
+        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+
+        if (proxy != null) {
+            final HttpHost proxyHost = new HttpHost(proxy.name, proxy.port);
+            clientBuilder.setRoutePlanner(new DefaultProxyRoutePlanner(proxyHost));
+
+            String username = proxy.getUserName();
+            String password = proxy.getPassword();
+            // Consider it to be passed if username specified. Sufficient?
+            if (username != null && !"".equals(username.trim())) {
+                logger.info("Using proxy authentication (user=" + username + ")");
+                credentialsProvider.setCredentials(new AuthScope(proxyHost),
+                        new UsernamePasswordCredentials(username, password));
+            }
+        }
+        return new SharedClient.Pooled<>(clientBuilder.build(), connectionManager, () -> {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Closes connections Slack has already timed out or that have been sitting idle in the pools.
+     */
+    @Extension
+    public static class IdleConnectionReaper extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return IDLE_TIMEOUT_MILLIS;
+        }
+
+        @Override
+        protected void doRun() {
+            evictIdleConnections();
+            AsyncHttpClientProvider.evictIdleConnections();
+        }
+    }
+}
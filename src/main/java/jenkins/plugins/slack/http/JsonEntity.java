@@ -0,0 +1,30 @@
+package jenkins.plugins.slack.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import jenkins.plugins.slack.payload.Payloads;
+
+/**
+ * A JSON request body which is serialized straight to the connection when the request is sent, instead of being
+ * built as a string first.
+ */
+public class JsonEntity extends StreamedEntity {
+
+    public static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final Object payload;
+
+    /**
+     * @param payload an object Jackson can serialize
+     */
+    public JsonEntity(Object payload) {
+        super(CONTENT_TYPE);
+        this.payload = payload;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Payloads.writer().writeValue(out, payload);
+        out.flush();
+    }
+}
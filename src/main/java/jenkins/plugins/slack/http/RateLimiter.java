@@ -0,0 +1,154 @@
+package jenkins.plugins.slack.http;
+
+import hudson.Util;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per token and channel, following Slack's guidance of about one message per second per channel.
+ *
+ * Instead of rejecting a message the limiter tells the caller how long to wait before sending it, so messages
+ * are delayed rather than dropped. When Slack answers with HTTP 429 the bucket is drained for the
+ * {@code Retry-After} period.
+ */
+public final class RateLimiter {
+
+    static final double PERMITS_PER_SECOND = 1.0;
+    static final int BURST = 3;
+    private static final int MAX_IDLE_BUCKETS = 1000;
+
+    private static final RateLimiter INSTANCE = new RateLimiter(PERMITS_PER_SECOND, BURST, System::nanoTime);
+
+    private final double millisPerPermit;
+    private final int burst;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        this.millisPerPermit = 1000 / permitsPerSecond;
+        this.burst = burst;
+        this.nanoTime = nanoTime;
+    }
+
+    public static RateLimiter get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reserves the right to post one message.
+     *
+     * @return how many milliseconds the caller has to wait before posting, 0 if it can post right away
+     */
+    public long reserve(String token, String channel) {
+        if (buckets.size() > MAX_IDLE_BUCKETS) {
+            pruneIdleBuckets();
+        }
+        long wait = buckets.computeIfAbsent(key(token, channel), k -> new Bucket(burst, now()))
+                .reserve(now());
+        if (wait > 0) {
+            delayed.incrementAndGet();
+        }
+        return wait;
+    }
+
+    /**
+     * Records that Slack rejected a message with HTTP 429, nothing more can be posted on the channel until
+     * {@code retryAfterMillis} have passed.
+     */
+    public void throttle(String token, String channel, long retryAfterMillis) {
+        throttled.incrementAndGet();
+        buckets.computeIfAbsent(key(token, channel), k -> new Bucket(burst, now()))
+                .drain(now(), retryAfterMillis);
+    }
+
+    /**
+     * Records that a message was given up on because it kept being throttled.
+     */
+    public void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * @return how many times Slack answered with HTTP 429
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * @return how many messages had to wait for the bucket before being posted
+     */
+    public long getDelayedCount() {
+        return delayed.get();
+    }
+
+    /**
+     * @return how many messages were given up on because they kept being throttled
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void pruneIdleBuckets() {
+        double now = now();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private double now() {
+        return nanoTime.getAsLong() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String key(String token, String channel) {
+        // keep the token itself out of the map, a truncated SHA-256 still tells tokens apart
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(String.valueOf(token).getBytes(StandardCharsets.UTF_8));
+            return Util.toHexString(digest, 0, 16) + '/' + channel;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private final class Bucket {
+        private double permits;
+        private double lastRefill;
+
+        Bucket(double permits, double now) {
+            this.permits = permits;
+            this.lastRefill = now;
+        }
+
+        synchronized long reserve(double now) {
+            refill(now);
+            permits -= 1;
+            if (permits >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-permits * millisPerPermit);
+        }
+
+        synchronized void drain(double now, long retryAfterMillis) {
+            refill(now);
+            // leave exactly enough debt that the next reservation waits out the Retry-After period
+            permits = Math.min(permits, 0) + 1 - retryAfterMillis / millisPerPermit;
+        }
+
+        synchronized boolean isFull(double now) {
+            refill(now);
+            return permits >= burst;
+        }
+
+        private void refill(double now) {
+            permits = Math.min(burst, permits + (now - lastRefill) / millisPerPermit);
+            lastRefill = now;
+        }
+    }
+}
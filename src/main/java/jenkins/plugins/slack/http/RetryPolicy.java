@@ -0,0 +1,113 @@
+package jenkins.plugins.slack.http;
+
+import java.io.Serializable;
+import java.net.ConnectException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Decides whether and when a failed Slack post is tried again.
+ *
+ * Only transient failures are retried: HTTP 502, 503 and 504, and failures to connect, which happen before anything
+ * is sent. Posts are not idempotent, so a read timeout or a connection reset after the request was written is not
+ * retried as it could post the message twice.
+ * Retries are spaced with exponential backoff and full jitter, and stop after a number of attempts or once the
+ * overall deadline would be exceeded.
+ */
+public final class RetryPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    public static final long DEFAULT_MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_DEADLINE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS,
+            DEFAULT_MAX_DELAY_MILLIS, DEFAULT_DEADLINE_MILLIS);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long deadlineMillis;
+
+    /**
+     * @param maxAttempts     how many times a post is attempted in total, including the first attempt
+     * @param baseDelayMillis the upper bound of the delay before the first retry, doubled for every further retry
+     * @param maxDelayMillis  the upper bound of the delay before any retry
+     * @param deadlineMillis  no retry is started later than this after the first attempt
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long deadlineMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.deadlineMillis = Math.max(0, deadlineMillis);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public static boolean isTransient(int statusCode) {
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * @return whether the request failed before it was sent, connect timeouts include timeouts waiting for a pooled
+     * connection and connect failures include {@code HttpHostConnectException}
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ConnectTimeoutException || t instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attemptsMade how many attempts have been made so far
+     * @return the delay before the next attempt, picked at random between 0 and the exponential backoff
+     */
+    public long delayBeforeRetry(int attemptsMade) {
+        return delayBeforeRetry(attemptsMade, ThreadLocalRandom.current().nextDouble());
+    }
+
+    long delayBeforeRetry(int attemptsMade, double random) {
+        int exponent = Math.min(Math.max(0, attemptsMade - 1), 30);
+        long backoff = Math.min(maxDelayMillis, baseDelayMillis << exponent);
+        if (backoff < 0) {
+            backoff = maxDelayMillis;
+        }
+        return (long) (backoff * random);
+    }
+
+    /**
+     * @param attemptsMade  how many attempts have been made so far
+     * @param elapsedMillis time since the first attempt was started
+     * @param delayMillis   the delay that would be waited before the next attempt
+     * @return whether another attempt should be made
+     */
+    public boolean canRetry(int attemptsMade, long elapsedMillis, long delayMillis) {
+        return attemptsMade < maxAttempts && elapsedMillis + delayMillis <= deadlineMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts=" + maxAttempts + ", baseDelayMillis=" + baseDelayMillis
+                + ", maxDelayMillis=" + maxDelayMillis + ", deadlineMillis=" + deadlineMillis + "}";
+    }
+}
@@ -0,0 +1,152 @@
+package jenkins.plugins.slack.http;
+
+import hudson.ProxyConfiguration;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * A pooled client shared by all posts, rebuilt when the Jenkins proxy configuration changes.
+ *
+ * Getting the client does not lock once it is built. A client replaced after a proxy change is closed by
+ * {@link #evictIdleConnections()} once none of its connections are leased, so that posts still running on it are not
+ * aborted.
+ */
+final class SharedClient<C extends Closeable> {
+
+    private static final Logger logger = Logger.getLogger(SharedClient.class.getName());
+
+    /**
+     * How long a replaced client is kept at least, for callers that got it just before it was replaced but have not
+     * leased a connection yet.
+     */
+    static final long RETIRED_GRACE_MILLIS = HttpClientProvider.CONNECT_TIMEOUT_MILLIS;
+
+    private final String description;
+    private final Function<ProxyConfiguration, Pooled<C>> factory;
+    private final Supplier<ProxyConfiguration> proxy;
+    private final LongSupplier clock;
+
+    private volatile Pooled<C> current;
+    private final List<Pooled<C>> retired = new ArrayList<>();
+
+    SharedClient(String description, Function<ProxyConfiguration, Pooled<C>> factory) {
+        this(description, factory, SharedClient::currentProxy, System::currentTimeMillis);
+    }
+
+    SharedClient(String description, Function<ProxyConfiguration, Pooled<C>> factory,
+                 Supplier<ProxyConfiguration> proxy, LongSupplier clock) {
+        this.description = description;
+        this.factory = factory;
+        this.proxy = proxy;
+        this.clock = clock;
+    }
+
+    C get() {
+        ProxyConfiguration configuration = proxy.get();
+        List<Object> key = proxyKey(configuration);
+        Pooled<C> pooled = current;
+        if (pooled != null && pooled.proxyKey.equals(key)) {
+            return pooled.client;
+        }
+        return rebuild(configuration, key);
+    }
+
+    private synchronized C rebuild(ProxyConfiguration configuration, List<Object> key) {
+        Pooled<C> pooled = current;
+        if (pooled != null && pooled.proxyKey.equals(key)) {
+            return pooled.client;
+        }
+        if (pooled != null) {
+            logger.log(Level.FINE, "Proxy configuration changed, rebuilding {0}", description);
+            pooled.retiredAt = clock.getAsLong();
+            retired.add(pooled);
+        }
+        Pooled<C> rebuilt = factory.apply(configuration);
+        rebuilt.proxyKey = key;
+        current = rebuilt;
+        return rebuilt.client;
+    }
+
+    /**
+     * Closes idle connections of the current client, and the replaced clients that are no longer in use.
+     */
+    synchronized void evictIdleConnections() {
+        Pooled<C> pooled = current;
+        if (pooled != null) {
+            pooled.evictIdleConnections.run();
+        }
+        long now = clock.getAsLong();
+        for (Iterator<Pooled<C>> it = retired.iterator(); it.hasNext(); ) {
+            Pooled<C> old = it.next();
+            if (now - old.retiredAt >= RETIRED_GRACE_MILLIS && old.isDrained()) {
+                close(old);
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void shutdown() {
+        if (current != null) {
+            close(current);
+            current = null;
+        }
+        for (Pooled<C> old : retired) {
+            close(old);
+        }
+        retired.clear();
+    }
+
+    private void close(Pooled<C> pooled) {
+        try {
+            pooled.client.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error closing " + description, e);
+        }
+    }
+
+    private static ProxyConfiguration currentProxy() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null ? jenkins.proxy : null;
+    }
+
+    private static List<Object> proxyKey(ProxyConfiguration proxy) {
+        if (proxy == null) {
+            return Arrays.asList();
+        }
+        return Arrays.asList(proxy.name, proxy.port, proxy.getUserName(), proxy.getPassword());
+    }
+
+    /**
+     * A client with the pool of its connections.
+     */
+    static final class Pooled<C> {
+        private final C client;
+        private final ConnPoolControl<?> pool;
+        private final Runnable evictIdleConnections;
+        private List<Object> proxyKey;
+        private long retiredAt;
+
+        Pooled(C client, ConnPoolControl<?> pool, Runnable evictIdleConnections) {
+            this.client = client;
+            this.pool = pool;
+            this.evictIdleConnections = evictIdleConnections;
+        }
+
+        private boolean isDrained() {
+            PoolStats stats = pool.getTotalStats();
+            return stats.getLeased() == 0 && stats.getPending() == 0;
+        }
+    }
+}
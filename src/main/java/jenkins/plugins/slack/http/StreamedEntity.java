@@ -0,0 +1,110 @@
+package jenkins.plugins.slack.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * A request body that is written by {@link #writeTo(OutputStream)} while the request is sent, by the blocking client
+ * to the connection's stream and by the non-blocking client to the channel. The non-blocking client only buffers what
+ * the channel does not take right away, until it is ready for more.
+ */
+abstract class StreamedEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private ByteBuffer pending;
+
+    StreamedEntity(String contentType) {
+        setContentType(contentType);
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * @return -1, the length is not known until the body has been written
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Only used by clients that neither write the entity nor produce it asynchronously, the body is built in memory.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (pending == null) {
+            EncoderOutputStream out = new EncoderOutputStream(encoder);
+            writeTo(out);
+            pending = out.remainder();
+        } else {
+            encoder.write(pending);
+        }
+        if (!pending.hasRemaining()) {
+            encoder.complete();
+            pending = null;
+        }
+    }
+
+    /**
+     * Forgets a body that was not sent completely, so that a retry starts over.
+     */
+    @Override
+    public void close() {
+        pending = null;
+    }
+
+    /**
+     * Writes to the channel until it takes less than it was given, and keeps the rest from then on.
+     */
+    private static final class EncoderOutputStream extends OutputStream {
+
+        private final ContentEncoder encoder;
+        private final ByteArrayOutputStream remainder = new ByteArrayOutputStream(0);
+
+        EncoderOutputStream(ContentEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            if (remainder.size() > 0) {
+                remainder.write(bytes, off, len);
+                return;
+            }
+            int written = encoder.write(ByteBuffer.wrap(bytes, off, len));
+            remainder.write(bytes, off + written, len - written);
+        }
+
+        ByteBuffer remainder() {
+            return ByteBuffer.wrap(remainder.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package jenkins.plugins.slack.outbox;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.util.Secret;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.plugins.slack.SlackNotifier;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.StandardSlackService;
+import jenkins.plugins.slack.dispatch.NotificationDispatcher;
+import jenkins.plugins.slack.payload.Payloads;
+import jenkins.plugins.slack.payload.SlackMessage;
+import jenkins.util.Timer;
+import net.sf.json.JSONArray;
+
+/**
+ * Write-ahead outbox under {@code JENKINS_HOME/slack-outbox} that keeps queued notifications across restarts.
+ *
+ * A notification is recorded before it is queued and acknowledged once it has been posted, or given up on.
+ * Whatever was never acknowledged is posted again the next time Jenkins starts, so a notification may be
+ * posted twice but is not lost.
+ */
+public final class Outbox {
+
+    private static final Logger logger = Logger.getLogger(Outbox.class.getName());
+
+    static final String DIRECTORY = "slack-outbox";
+    static final long SEGMENT_BYTES = 4 * 1024 * 1024;
+    static final int SYNC_BATCH = 64;
+    static final long SYNC_INTERVAL_MILLIS = 200;
+
+    /**
+     * Id returned when a notification was not written to the outbox, acknowledging it does nothing.
+     */
+    public static final long NOT_RECORDED = -1;
+
+    private static OutboxLog log;
+    private static ScheduledFuture<?> syncTask;
+
+    private Outbox() {
+    }
+
+    /**
+     * @return the id to {@link #ack(long)} once the notification has been dealt with
+     */
+    public static long record(SlackService slackService, String description, String message) {
+        return record(slackService, description, OutboxEntry.Kind.MESSAGE, message, null, null);
+    }
+
+    /**
+     * @return the id to {@link #ack(long)} once the notification has been dealt with
+     */
+    public static long record(SlackService slackService, String description, String message, String color) {
+        return record(slackService, description, OutboxEntry.Kind.MESSAGE_WITH_COLOR, message, null, color);
+    }
+
+    /**
+     * @return the id to {@link #ack(long)} once the notification has been dealt with
+     */
+    public static long record(SlackService slackService, String description, String message, JSONArray attachments, String color) {
+        return record(slackService, description, OutboxEntry.Kind.ATTACHMENTS, message,
+                attachments != null ? attachments.toString() : null, color);
+    }
+
+    /**
+     * @return the id to {@link #ack(long)} once the notification has been dealt with
+     */
+    public static long record(SlackService slackService, String description, SlackMessage message) {
+        if (!isEnabled()) {
+            return NOT_RECORDED;
+        }
+        return record(slackService, description, OutboxEntry.Kind.ATTACHMENTS, message.getText(),
+                Payloads.toJson(message.getAttachments()), message.getColor());
+    }
+
+    private static long record(SlackService slackService, String description, OutboxEntry.Kind kind, String message,
+                               String attachments, String color) {
+        if (!isEnabled() || !(slackService instanceof StandardSlackService)) {
+            return NOT_RECORDED;
+        }
+        StandardSlackService standardSlackService = (StandardSlackService) slackService;
+        OutboxEntry entry = new OutboxEntry(description, standardSlackService.getBaseUrl(),
+                standardSlackService.getTeamDomain(), standardSlackService.isBotUser(), standardSlackService.getRoomId(),
+                standardSlackService.isReplyBroadcast(),
+                Secret.fromString(standardSlackService.getPopulatedToken()).getEncryptedValue(),
+                kind, message, attachments, color);
+        try {
+            return log().append(entry.toBytes());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write " + description + " to the Slack outbox", e);
+            return NOT_RECORDED;
+        }
+    }
+
+    /**
+     * Marks a notification as dealt with, so that it is not posted again after a restart.
+     */
+    public static void ack(long id) {
+        if (id == NOT_RECORDED) {
+            return;
+        }
+        OutboxLog current;
+        synchronized (Outbox.class) {
+            current = log;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.ack(id);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not acknowledge Slack outbox entry " + id, e);
+        }
+    }
+
+    /**
+     * Queues the notifications that were recorded but never acknowledged before Jenkins stopped.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void replay() {
+        if (!directory().isDirectory()) {
+            return;
+        }
+        Map<Long, byte[]> recovered;
+        try {
+            recovered = log().recovered();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read the Slack outbox", e);
+            return;
+        }
+        if (!recovered.isEmpty()) {
+            logger.info("Sending " + recovered.size() + " Slack notifications left over from before the restart");
+        }
+        for (Map.Entry<Long, byte[]> entry : recovered.entrySet()) {
+            replay(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void replay(long id, byte[] bytes) {
+        OutboxEntry entry;
+        try {
+            entry = OutboxEntry.fromBytes(bytes);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Discarding unreadable Slack outbox entry " + id, e);
+            ack(id);
+            return;
+        }
+        Secret token = Secret.decrypt(entry.encryptedToken);
+        if (token == null) {
+            logger.warning("Discarding " + entry.description + " from the Slack outbox, its token cannot be decrypted");
+            ack(id);
+            return;
+        }
+        SlackNotifier.DescriptorImpl descriptor = Jenkins.get().getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+        StandardSlackService slackService = descriptor != null
+                ? descriptor.createSlackService(entry.baseUrl, entry.teamDomain, entry.botUser, entry.roomId,
+                        entry.replyBroadcast, token.getPlainText())
+                : new StandardSlackService(entry.baseUrl, entry.teamDomain, entry.botUser, entry.roomId,
+                        entry.replyBroadcast, token.getPlainText());
+        NotificationDispatcher.get().dispatch(entry.description, () -> {
+            try {
+                entry.publishTo(slackService);
+            } finally {
+                ack(id);
+            }
+        }, () -> ack(id));
+    }
+
+    /**
+     * Closes the outbox once the dispatcher has stopped, anything still queued is kept for the next start.
+     */
+    @Terminator(requires = NotificationDispatcher.DRAINED)
+    public static synchronized void shutdown() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close the Slack outbox", e);
+            }
+            log = null;
+        }
+    }
+
+    private static boolean isEnabled() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return false;
+        }
+        SlackNotifier.DescriptorImpl descriptor = jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+        return descriptor != null && descriptor.isDurableOutbox();
+    }
+
+    private static File directory() {
+        return new File(Jenkins.get().getRootDir(), DIRECTORY);
+    }
+
+    private static synchronized OutboxLog log() throws IOException {
+        if (log == null) {
+            OutboxLog opened = OutboxLog.open(directory(), SEGMENT_BYTES, SYNC_BATCH);
+            // appends between two batches reach the disk within the interval
+            syncTask = Timer.get().scheduleWithFixedDelay(() -> {
+                try {
+                    opened.sync();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not sync the Slack outbox", e);
+                }
+            }, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            log = opened;
+        }
+        return log;
+    }
+}
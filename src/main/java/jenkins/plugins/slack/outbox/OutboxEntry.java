@@ -0,0 +1,142 @@
+package jenkins.plugins.slack.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.payload.Attachment;
+import jenkins.plugins.slack.payload.Payloads;
+import jenkins.plugins.slack.payload.SlackMessage;
+
+/**
+ * A notification waiting in the outbox: where to post it and what to post.
+ *
+ * The token is only ever held in its encrypted form.
+ */
+final class OutboxEntry {
+
+    private static final byte VERSION = 1;
+
+    enum Kind {
+        MESSAGE, MESSAGE_WITH_COLOR, ATTACHMENTS
+    }
+
+    final String description;
+    final String baseUrl;
+    final String teamDomain;
+    final boolean botUser;
+    final String roomId;
+    final boolean replyBroadcast;
+    final String encryptedToken;
+    final Kind kind;
+    final String message;
+    final String attachments;
+    final String color;
+
+    OutboxEntry(String description, String baseUrl, String teamDomain, boolean botUser, String roomId,
+                boolean replyBroadcast, String encryptedToken, Kind kind, String message, String attachments, String color) {
+        this.description = description;
+        this.baseUrl = baseUrl;
+        this.teamDomain = teamDomain;
+        this.botUser = botUser;
+        this.roomId = roomId;
+        this.replyBroadcast = replyBroadcast;
+        this.encryptedToken = encryptedToken;
+        this.kind = kind;
+        this.message = message;
+        this.attachments = attachments;
+        this.color = color;
+    }
+
+    /**
+     * Posts the notification with the same publish method it was originally queued with.
+     */
+    boolean publishTo(SlackService slackService) {
+        switch (kind) {
+            case MESSAGE:
+                return slackService.publish(message);
+            case MESSAGE_WITH_COLOR:
+                return slackService.publish(message, color);
+            case ATTACHMENTS:
+            default:
+                return slackService.publish(new SlackMessage(message, readAttachments(), color));
+        }
+    }
+
+    private List<Attachment> readAttachments() {
+        try {
+            return attachments != null ? Payloads.parseAttachments(attachments) : null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid attachments in the outbox entry for " + description, e);
+        }
+    }
+
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, description);
+            writeString(out, baseUrl);
+            writeString(out, teamDomain);
+            out.writeBoolean(botUser);
+            writeString(out, roomId);
+            out.writeBoolean(replyBroadcast);
+            writeString(out, encryptedToken);
+            out.writeByte(kind.ordinal());
+            writeString(out, message);
+            writeString(out, attachments);
+            writeString(out, color);
+        }
+        return bytes.toByteArray();
+    }
+
+    static OutboxEntry fromBytes(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported outbox entry version " + version);
+            }
+            String description = readString(in);
+            String baseUrl = readString(in);
+            String teamDomain = readString(in);
+            boolean botUser = in.readBoolean();
+            String roomId = readString(in);
+            boolean replyBroadcast = in.readBoolean();
+            String encryptedToken = readString(in);
+            int kind = in.readByte();
+            if (kind < 0 || kind >= Kind.values().length) {
+                throw new IOException("Unknown outbox entry kind " + kind);
+            }
+            String message = readString(in);
+            String attachments = readString(in);
+            String color = readString(in);
+            return new OutboxEntry(description, baseUrl, teamDomain, botUser, roomId, replyBroadcast, encryptedToken,
+                    Kind.values()[kind], message, attachments, color);
+        }
+    }
+
+    // unlike writeUTF, not limited to 64k, and null is kept apart from the empty string
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,263 @@
+package jenkins.plugins.slack.outbox;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records, split into segment files.
+ *
+ * Every record is written as {@code length, type, id, payload, crc32}, where the length covers the type, id and
+ * payload. An {@code ADD} record carries a payload and an {@code ACK} record marks the {@code ADD} with the same id
+ * as done. Writes go to the page cache and are forced to disk in batches, either once enough records are pending or
+ * when {@link #sync()} is called. Segments are deleted once they and every older segment only hold acknowledged
+ * records, so that an acknowledgement is never lost while the record it refers to still exists.
+ */
+final class OutboxLog implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(OutboxLog.class.getName());
+
+    static final byte ADD = 1;
+    static final byte ACK = 2;
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    private final File directory;
+    private final long segmentBytes;
+    private final int syncBatch;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<Long, Segment> live = new HashMap<>();
+    private final Map<Long, byte[]> recovered = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel active;
+    private long nextId = 1;
+    private int unsynced;
+
+    private OutboxLog(File directory, long segmentBytes, int syncBatch) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncBatch = syncBatch;
+    }
+
+    /**
+     * Opens the log in the directory, reading back the records that were never acknowledged.
+     * New records always go to a fresh segment, so a record torn by a crash is never appended to.
+     */
+    static OutboxLog open(File directory, long segmentBytes, int syncBatch) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        OutboxLog log = new OutboxLog(directory, segmentBytes, syncBatch);
+        log.recover();
+        log.roll();
+        log.compact();
+        return log;
+    }
+
+    /**
+     * @return the records that were written but not acknowledged before the log was opened, by id in write order
+     */
+    synchronized Map<Long, byte[]> recovered() {
+        return new LinkedHashMap<>(recovered);
+    }
+
+    /**
+     * @return the id of the new record, to be passed to {@link #ack(long)} once it has been dealt with
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        long id = nextId++;
+        write(ADD, id, payload);
+        Segment segment = segments.getLast();
+        segment.live++;
+        live.put(id, segment);
+        rollIfFull();
+        return id;
+    }
+
+    synchronized void ack(long id) throws IOException {
+        Segment segment = live.remove(id);
+        if (segment == null) {
+            return;
+        }
+        recovered.remove(id);
+        write(ACK, id, new byte[0]);
+        segment.live--;
+        rollIfFull();
+        compact();
+    }
+
+    /**
+     * @return how many records have not been acknowledged yet
+     */
+    synchronized int size() {
+        return live.size();
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Forces the records written so far to disk.
+     */
+    synchronized void sync() throws IOException {
+        if (unsynced > 0 && active != null) {
+            active.force(false);
+            unsynced = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            sync();
+            active.close();
+            active = null;
+        }
+    }
+
+    private void write(byte type, long id, byte[] payload) throws IOException {
+        if (active == null) {
+            throw new IOException("Outbox " + directory + " is closed");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+        buffer.putInt(1 + 8 + payload.length).put(type).putLong(id).put(payload);
+        crc.reset();
+        crc.update(buffer.array(), 4, 1 + 8 + payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        if (++unsynced >= syncBatch) {
+            sync();
+        }
+    }
+
+    private void rollIfFull() throws IOException {
+        if (active.position() >= segmentBytes) {
+            roll();
+            compact();
+        }
+    }
+
+    private void roll() throws IOException {
+        long number = 1;
+        if (active != null) {
+            sync();
+            active.close();
+        }
+        if (!segments.isEmpty()) {
+            number = segments.getLast().number + 1;
+        }
+        Segment segment = new Segment(number, new File(directory, String.format("segment-%020d.log", number)));
+        active = FileChannel.open(segment.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segments.addLast(segment);
+    }
+
+    private void compact() throws IOException {
+        while (segments.size() > 1 && segments.getFirst().live == 0) {
+            Segment segment = segments.removeFirst();
+            Files.deleteIfExists(segment.file.toPath());
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+            matcher.matches();
+            Segment segment = new Segment(Long.parseLong(matcher.group(1)), file);
+            segments.addLast(segment);
+            read(segment);
+        }
+    }
+
+    private void read(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header)) {
+                    if (header.position() > 0) {
+                        logger.warning("Ignoring a partially written record at the end of " + segment.file);
+                    }
+                    return;
+                }
+                int length = header.getInt(0);
+                if (length < 1 + 8 || length > MAX_RECORD_LENGTH) {
+                    logger.warning("Ignoring the rest of " + segment.file + ", record length " + length + " is invalid");
+                    return;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length + 4);
+                if (!readFully(channel, record)) {
+                    logger.warning("Ignoring a partially written record at the end of " + segment.file);
+                    return;
+                }
+                crc.reset();
+                crc.update(record.array(), 0, length);
+                if ((int) crc.getValue() != record.getInt(length)) {
+                    logger.warning("Ignoring the rest of " + segment.file + ", a record is corrupt");
+                    return;
+                }
+                byte type = record.get(0);
+                long id = record.getLong(1);
+                nextId = Math.max(nextId, id + 1);
+                if (type == ADD) {
+                    recovered.put(id, Arrays.copyOfRange(record.array(), 1 + 8, length));
+                    live.put(id, segment);
+                    segment.live++;
+                } else if (type == ACK) {
+                    Segment added = live.remove(id);
+                    if (added != null) {
+                        recovered.remove(id);
+                        added.live--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the channel ended before the buffer was filled
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Segment {
+        private final long number;
+        private final File file;
+        private int live;
+
+        Segment(long number, File file) {
+            this.number = number;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package jenkins.plugins.slack.payload;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A message attachment. The properties the plugin sets itself are typed, any other property given by a pipeline
+ * is kept as is and written after them.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"fallback", "color", "fields", "mrkdwn_in"})
+public final class Attachment {
+
+    private String fallback;
+    private String color;
+    private List<Field> fields;
+    @JsonProperty("mrkdwn_in")
+    private List<String> mrkdwnIn;
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+
+    public String getFallback() {
+        return fallback;
+    }
+
+    public Attachment setFallback(String fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public Attachment setColor(String color) {
+        this.color = color;
+        return this;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    public Attachment setFields(List<Field> fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    @JsonProperty("mrkdwn_in")
+    public List<String> getMrkdwnIn() {
+        return mrkdwnIn;
+    }
+
+    @JsonProperty("mrkdwn_in")
+    public Attachment setMrkdwnIn(List<String> mrkdwnIn) {
+        this.mrkdwnIn = mrkdwnIn;
+        return this;
+    }
+
+    /**
+     * @return the other properties, such as {@code title} or {@code text}, in the order they were set
+     */
+    @JsonAnyGetter
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    public Object get(String name) {
+        return properties.get(name);
+    }
+
+    public Attachment set(String name, Object value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    @JsonAnySetter
+    private void setProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Attachment)) {
+            return false;
+        }
+        Attachment that = (Attachment) o;
+        return Objects.equals(fallback, that.fallback) && Objects.equals(color, that.color)
+                && Objects.equals(fields, that.fields) && Objects.equals(mrkdwnIn, that.mrkdwnIn)
+                && properties.equals(that.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fallback, color, fields, mrkdwnIn, properties);
+    }
+
+    @Override
+    public String toString() {
+        return Payloads.toJson(this);
+    }
+}
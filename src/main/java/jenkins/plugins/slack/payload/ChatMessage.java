@@ -0,0 +1,100 @@
+package jenkins.plugins.slack.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.List;
+
+/**
+ * The body posted to a room, either as the payload of an incoming webhook or to {@code chat.postMessage} for a
+ * bot user, or to {@code chat.update} to replace a message.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"channel", "ts", "link_names", "as_user", "thread_ts", "reply_broadcast", "text", "attachments"})
+public final class ChatMessage {
+
+    private final String channel;
+    private final String ts;
+    private final Object linkNames;
+    private final Boolean asUser;
+    private final String threadTs;
+    private final Boolean replyBroadcast;
+    private final String text;
+    private final List<Attachment> attachments;
+
+    private ChatMessage(String channel, String ts, Object linkNames, Boolean asUser, String threadTs, Boolean replyBroadcast, String text, List<Attachment> attachments) {
+        this.channel = channel;
+        this.ts = ts;
+        this.linkNames = linkNames;
+        this.asUser = asUser;
+        this.threadTs = threadTs;
+        this.replyBroadcast = replyBroadcast;
+        this.text = text;
+        this.attachments = attachments;
+    }
+
+    /**
+     * @param text the text, {@code null} to only post the attachments
+     */
+    public static ChatMessage webhook(String channel, String text, List<Attachment> attachments) {
+        return new ChatMessage(channel, null, "1", null, null, null, text, attachments);
+    }
+
+    /**
+     * @param threadTs the thread to reply to, {@code null} to start a new one
+     * @param text the text, {@code null} to only post the attachments
+     */
+    public static ChatMessage botUser(String channel, String threadTs, boolean replyBroadcast, String text, List<Attachment> attachments) {
+        return new ChatMessage(channel, null, true, true, threadTs, replyBroadcast ? Boolean.TRUE : null, text, attachments);
+    }
+
+    /**
+     * @param ts the timestamp of the message to replace
+     * @param text the text, {@code null} to remove it
+     */
+    public static ChatMessage update(String channel, String ts, String text, List<Attachment> attachments) {
+        return new ChatMessage(channel, ts, true, true, null, null, text, attachments);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the timestamp of the message to replace, {@code null} when posting a new one
+     */
+    public String getTs() {
+        return ts;
+    }
+
+    /**
+     * @return {@code "1"} for a webhook and {@code true} for the Web API, as each of them documents it
+     */
+    @JsonProperty("link_names")
+    public Object getLinkNames() {
+        return linkNames;
+    }
+
+    @JsonProperty("as_user")
+    public Boolean getAsUser() {
+        return asUser;
+    }
+
+    @JsonProperty("thread_ts")
+    public String getThreadTs() {
+        return threadTs;
+    }
+
+    @JsonProperty("reply_broadcast")
+    public Boolean getReplyBroadcast() {
+        return replyBroadcast;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+}
@@ -0,0 +1,82 @@
+package jenkins.plugins.slack.payload;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A field of an attachment, shown as a table cell. Any other property given by a pipeline is kept as is and written
+ * after the typed ones, like the other properties of an {@link Attachment}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"title", "value", "short"})
+public final class Field {
+
+    private final String title;
+    private final String value;
+    private final boolean isShort;
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+
+    @JsonCreator
+    public Field(@JsonProperty("title") String title, @JsonProperty("value") String value, @JsonProperty("short") boolean isShort) {
+        this.title = title;
+        this.value = value;
+        this.isShort = isShort;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @JsonProperty("short")
+    public boolean isShort() {
+        return isShort;
+    }
+
+    /**
+     * @return the other properties, in the order they were given
+     */
+    @JsonAnyGetter
+    public Map<String, Object> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    @JsonAnySetter
+    private void setProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Field)) {
+            return false;
+        }
+        Field field = (Field) o;
+        return isShort == field.isShort && Objects.equals(title, field.title) && Objects.equals(value, field.value)
+                && properties.equals(field.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, value, isShort, properties);
+    }
+
+    @Override
+    public String toString() {
+        return Payloads.toJson(this);
+    }
+}
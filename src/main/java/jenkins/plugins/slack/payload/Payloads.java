@@ -0,0 +1,77 @@
+package jenkins.plugins.slack.payload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import java.io.IOException;
+import java.util.List;
+import net.sf.json.JSONArray;
+
+/**
+ * Reads and writes payloads with a shared Jackson mapper, which is thread safe once configured.
+ */
+public final class Payloads {
+
+    private static final TypeReference<List<Attachment>> ATTACHMENTS = new TypeReference<List<Attachment>>() {
+    };
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            // the stream belongs to the connection, whoever opened it closes it
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            // values interpolated by a pipeline script are GStrings
+            .registerModule(new SimpleModule().addSerializer(CharSequence.class, ToStringSerializer.instance));
+
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    private Payloads() {
+    }
+
+    /**
+     * @return the writer streaming payloads as UTF-8 JSON
+     */
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    /**
+     * Reads attachments given as JSON text, or as lists and maps such as those of a pipeline step.
+     *
+     * @throws IOException if the value is not an array of attachments
+     */
+    public static List<Attachment> parseAttachments(Object value) throws IOException {
+        if (value instanceof String) {
+            return MAPPER.readValue((String) value, ATTACHMENTS);
+        }
+        try {
+            return MAPPER.convertValue(value, ATTACHMENTS);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adapts attachments built with json-lib, for callers of the older API.
+     */
+    public static List<Attachment> fromJSONArray(JSONArray attachments) {
+        if (attachments == null) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(attachments.toString(), ATTACHMENTS);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid attachments: " + e.getMessage(), e);
+        }
+    }
+
+    public static String toJson(Object payload) {
+        try {
+            return WRITER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package jenkins.plugins.slack.payload;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A message to post to every room of a {@link jenkins.plugins.slack.SlackService}: an optional text and the
+ * attachments shown below it.
+ */
+public final class SlackMessage {
+
+    private static final List<String> MARKDOWN_IN = Collections.unmodifiableList(Arrays.asList("pretext", "text", "fields"));
+
+    private final String text;
+    private final List<Attachment> attachments;
+    private final String color;
+
+    public SlackMessage(String text, List<Attachment> attachments, String color) {
+        this.text = text;
+        this.attachments = attachments != null ? attachments : Collections.emptyList();
+        this.color = color;
+    }
+
+    /**
+     * @return a message without text, with the given text shown in a single attachment of the given color
+     */
+    public static SlackMessage colored(String message, String color) {
+        Attachment attachment = new Attachment()
+                .setFallback(message)
+                .setColor(color)
+                .setFields(Collections.singletonList(new Field(null, message, false)))
+                .setMrkdwnIn(MARKDOWN_IN);
+        return new SlackMessage(null, Collections.singletonList(attachment), color);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SlackMessage)) {
+            return false;
+        }
+        SlackMessage that = (SlackMessage) o;
+        return Objects.equals(text, that.text) && attachments.equals(that.attachments) && Objects.equals(color, that.color);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text, attachments, color);
+    }
+
+    @Override
+    public String toString() {
+        return "SlackMessage{text=" + text + ", attachments=" + attachments + ", color=" + color + "}";
+    }
+}
@@ -0,0 +1,215 @@
+package jenkins.plugins.slack.workflow;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.dispatch.PublishExecutor;
+import jenkins.plugins.slack.payload.Attachment;
+import jenkins.plugins.slack.payload.SlackMessage;
+import org.jenkinsci.plugins.workflow.actions.BodyInvocationAction;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.flow.GraphListener;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowEndNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+
+/**
+ * Keeps a message posted by {@code slackSend(liveStatus: true)} up to date with the stages of the run, editing it
+ * with chat.update as stages start and end.
+ *
+ * Changes are coalesced so that the message is edited at most once per interval however many stages start or end,
+ * and the last state is always sent. The listener only lives in memory: after a restart the message is no longer
+ * updated.
+ */
+final class LiveStatus implements GraphListener {
+
+    private static final Logger logger = Logger.getLogger(LiveStatus.class.getName());
+
+    static final int DEFAULT_INTERVAL_SECONDS = 10;
+
+    private final SlackService slackService;
+    private final String channel;
+    private final String ts;
+    private final String header;
+    private final List<Attachment> attachments;
+    private final String color;
+    private final long intervalMillis;
+    private final Scheduler scheduler;
+    private final LongSupplier clock;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private Boolean failed;
+    /**
+     * Whether an edit is scheduled or being sent, edits are sent one at a time so that a retried edit cannot
+     * overwrite a newer one.
+     */
+    private boolean busy;
+    /**
+     * Whether something changed since the edit being sent was rendered.
+     */
+    private boolean dirty;
+    private long lastUpdateAt = Long.MIN_VALUE;
+
+    /**
+     * @param header      the text of the message posted, shown above the stages
+     * @param attachments the attachments of the message posted, kept as they are, or {@code null} when the text was
+     *                    posted as a colored message
+     */
+    LiveStatus(SlackService slackService, String channel, String ts, String header, List<Attachment> attachments,
+               String color, int intervalSeconds) {
+        this(slackService, channel, ts, header, attachments, color, intervalSeconds,
+                (task, delay) -> PublishExecutor.get().schedule(task, delay, TimeUnit.MILLISECONDS),
+                System::currentTimeMillis);
+    }
+
+    LiveStatus(SlackService slackService, String channel, String ts, String header, List<Attachment> attachments,
+               String color, int intervalSeconds, Scheduler scheduler, LongSupplier clock) {
+        this.slackService = slackService;
+        this.channel = channel;
+        this.ts = ts;
+        this.header = header != null ? header : "";
+        this.attachments = attachments;
+        this.color = color;
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds > 0 ? intervalSeconds : DEFAULT_INTERVAL_SECONDS);
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    /**
+     * Called on the CPS thread for every new node, so it only records the change.
+     */
+    @Override
+    public void onNewHead(FlowNode node) {
+        if (node instanceof BlockEndNode) {
+            FlowNode start = ((BlockEndNode<?>) node).getStartNode();
+            if (isStage(start)) {
+                stageEnded(start.getId(), node.getError() != null);
+            }
+        } else if (node instanceof FlowEndNode) {
+            finished(node.getError() != null);
+        } else if (node instanceof BlockStartNode && node.getAction(BodyInvocationAction.class) != null) {
+            // a stage is labelled when the step starts, after its own node became a head, so it is recognised
+            // when its body starts
+            for (FlowNode parent : node.getParents()) {
+                if (isStage(parent)) {
+                    stageStarted(parent.getId(), parent.getAction(LabelAction.class).getDisplayName());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the node starts a {@code stage}, parallel branches are labelled too but are not stages
+     */
+    private static boolean isStage(FlowNode node) {
+        return node instanceof BlockStartNode && node.getAction(LabelAction.class) != null
+                && node.getAction(ThreadNameAction.class) == null;
+    }
+
+    void stageStarted(String id, String name) {
+        synchronized (this) {
+            stages.put(id, new Stage(name));
+        }
+        changed();
+    }
+
+    void stageEnded(String id, boolean stageFailed) {
+        synchronized (this) {
+            Stage stage = stages.get(id);
+            if (stage == null) {
+                return;
+            }
+            stage.state = stageFailed ? "failed" : "done";
+        }
+        changed();
+    }
+
+    void finished(boolean runFailed) {
+        synchronized (this) {
+            failed = runFailed;
+        }
+        changed();
+    }
+
+    /**
+     * Schedules an edit unless one is already waiting or being sent, no sooner than the interval after the last one.
+     */
+    private void changed() {
+        synchronized (this) {
+            if (busy) {
+                dirty = true;
+                return;
+            }
+            busy = true;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        long delay;
+        synchronized (this) {
+            delay = lastUpdateAt == Long.MIN_VALUE ? 0 : Math.max(0, lastUpdateAt + intervalMillis - clock.getAsLong());
+        }
+        scheduler.schedule(this::update, delay);
+    }
+
+    /**
+     * Sends the latest state, then schedules the next edit if it changed meanwhile.
+     */
+    private void update() {
+        SlackMessage message;
+        synchronized (this) {
+            dirty = false;
+            lastUpdateAt = clock.getAsLong();
+            message = render();
+        }
+        slackService.updateAsync(channel, ts, message).whenComplete((updated, error) -> {
+            if (error != null || !Boolean.TRUE.equals(updated)) {
+                logger.log(Level.FINE, "Could not update the live status message " + ts + " in " + channel, error);
+            }
+            synchronized (this) {
+                if (!dirty) {
+                    busy = false;
+                    return;
+                }
+            }
+            schedule();
+        });
+    }
+
+    synchronized SlackMessage render() {
+        StringBuilder text = new StringBuilder(header);
+        for (Stage stage : stages.values()) {
+            text.append("\n- ").append(stage.name).append(": ").append(stage.state);
+        }
+        String messageColor = color;
+        if (failed != null) {
+            text.append("\nFinished").append(failed ? " with errors" : "");
+            messageColor = failed ? "danger" : "good";
+        }
+        if (attachments != null) {
+            return new SlackMessage(text.toString(), attachments, messageColor);
+        }
+        return SlackMessage.colored(text.toString(), messageColor);
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private static final class Stage {
+        private final String name;
+        private String state = "running";
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package jenkins.plugins.slack.workflow;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.annotation.Nonnull;
+import jenkins.plugins.slack.Messages;
+import jenkins.plugins.slack.PublishResult;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.payload.SlackMessage;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Sends several messages in one step, for pipelines that would otherwise call {@code slackSend} in a loop. Each
+ * message is either a text or a map with {@code message}, {@code color} and {@code attachments}, the other settings
+ * are those of {@code slackSend} and apply to every message. The settings that are given for each message, or that
+ * only make sense for a single message, are rejected instead of being ignored.
+ *
+ * The step returns the {@link SlackResponse} of each message, in order.
+ */
+public class SlackSendBatchStep extends SlackSendStep {
+
+    private Object messages;
+
+    @DataBoundConstructor
+    public SlackSendBatchStep() {
+    }
+
+    public Object getMessages() {
+        return messages;
+    }
+
+    @DataBoundSetter
+    public void setMessages(Object messages) {
+        this.messages = messages;
+    }
+
+    @Override
+    public void setMessage(String message) {
+        if (message != null) {
+            throw perMessage("message");
+        }
+    }
+
+    @Override
+    public void setAttachments(Object attachments) {
+        if (attachments != null) {
+            throw perMessage("attachments");
+        }
+    }
+
+    @Override
+    public void setTimestamp(String timestamp) {
+        if (Util.fixEmpty(timestamp) != null) {
+            throw singleMessageOnly("timestamp");
+        }
+    }
+
+    @Override
+    public void setLiveStatus(boolean liveStatus) {
+        if (liveStatus) {
+            throw singleMessageOnly("liveStatus");
+        }
+    }
+
+    @Override
+    public void setLiveStatusIntervalSeconds(Integer liveStatusIntervalSeconds) {
+        if (liveStatusIntervalSeconds != null) {
+            throw singleMessageOnly("liveStatusIntervalSeconds");
+        }
+    }
+
+    private static IllegalArgumentException perMessage(String parameter) {
+        return new IllegalArgumentException("slackSendBatch does not take " + parameter
+                + ", give it in the map of each entry of messages instead");
+    }
+
+    private static IllegalArgumentException singleMessageOnly(String parameter) {
+        return new IllegalArgumentException("slackSendBatch does not take " + parameter
+                + ", which applies to a single message, use slackSend instead");
+    }
+
+    @Override
+    public StepExecution start(StepContext context) {
+        return new SlackSendBatchStepExecution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends SlackSendStep.DescriptorImpl {
+
+        @Override
+        public String getFunctionName() {
+            return "slackSendBatch";
+        }
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return Messages.slackSendBatchStepDisplayName();
+        }
+    }
+
+    public static class SlackSendBatchStepExecution extends SlackSendStep.SlackSendStepExecution {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient final SlackSendBatchStep step;
+
+        SlackSendBatchStepExecution(SlackSendBatchStep step, StepContext context) {
+            super(step, context);
+            this.step = step;
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            completeWith(inBackground(this::sendAll));
+            return false;
+        }
+
+        /**
+         * @return a future completed with the response to each message, {@code null} for those that failed, or
+         * with {@code null} when nothing could be sent and the step should not fail
+         */
+        CompletableFuture<List<SlackResponse>> sendAll() throws Exception {
+            TaskListener listener = getContext().get(TaskListener.class);
+            Objects.requireNonNull(listener, "Listener is mandatory here");
+
+            List<SlackMessage> slackMessages = toMessages(listener);
+            if (slackMessages == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            SlackService slackService = resolveSlackService(listener);
+            if (slackService == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return posting(slackService.publishAll(slackMessages)).thenApply(results -> {
+                List<SlackResponse> responses = new ArrayList<>(results.size());
+                try {
+                    for (PublishResult result : results) {
+                        responses.add(toResponse(result.isSuccess(), result.getResponseString(), listener));
+                    }
+                } catch (AbortException e) {
+                    throw new CompletionException(e);
+                }
+                return responses;
+            });
+        }
+
+        /**
+         * @return the messages, or {@code null} after reporting why one of them cannot be sent
+         */
+        private List<SlackMessage> toMessages(TaskListener listener) {
+            if (!(step.messages instanceof List)) {
+                listener.error(Messages.notificationFailedWithException(new IllegalArgumentException("messages must be a list")));
+                return null;
+            }
+            List<?> entries = (List<?>) step.messages;
+            List<SlackMessage> slackMessages = new ArrayList<>(entries.size());
+            for (Object entry : entries) {
+                SlackMessage slackMessage;
+                if (entry instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) entry;
+                    slackMessage = toMessage(asString(map.get("message")), map.get("attachments"),
+                            map.containsKey("color") ? asString(map.get("color")) : step.getColor(), listener);
+                } else if (entry instanceof CharSequence) {
+                    slackMessage = toMessage(entry.toString(), null, step.getColor(), listener);
+                } else {
+                    listener.error(Messages.notificationFailedWithException(
+                            new IllegalArgumentException("Each message must be a text or a map, not " + entry)));
+                    return null;
+                }
+                if (slackMessage == null) {
+                    return null;
+                }
+                slackMessages.add(slackMessage);
+            }
+            return slackMessages;
+        }
+
+        private static String asString(Object value) {
+            return value != null ? value.toString() : null;
+        }
+    }
+}
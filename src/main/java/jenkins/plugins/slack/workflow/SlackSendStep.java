@@ -3,7 +3,6 @@ package jenkins.plugins.slack.workflow;
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import com.cloudbees.plugins.credentials.domains.HostnameRequirement;
 import com.google.common.collect.ImmutableSet;
-import groovy.json.JsonOutput;
 import hudson.AbortException;
 import hudson.Extension;
 import hudson.Util;
@@ -14,8 +13,16 @@ import hudson.model.TaskListener;
 import hudson.security.ACL;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -25,17 +32,17 @@ import jenkins.plugins.slack.Messages;
 import jenkins.plugins.slack.SlackNotifier;
 import jenkins.plugins.slack.SlackService;
 import jenkins.plugins.slack.StandardSlackService;
-import net.sf.json.JSON;
-import net.sf.json.JSONArray;
-import net.sf.json.JSONException;
-import net.sf.json.JSONObject;
-import net.sf.json.groovy.JsonSlurper;
+import jenkins.plugins.slack.dispatch.PublishExecutor;
+import jenkins.plugins.slack.http.RetryPolicy;
+import jenkins.plugins.slack.payload.Attachment;
+import jenkins.plugins.slack.payload.Payloads;
+import jenkins.plugins.slack.payload.SlackMessage;
 import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
-import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -61,6 +68,14 @@ public class SlackSendStep extends Step {
     private boolean failOnError;
     private Object attachments;
     private boolean replyBroadcast;
+    private Object replyTo;
+    private String timestamp;
+    private boolean liveStatus;
+    private Integer liveStatusIntervalSeconds;
+    private Integer retryMaxAttempts;
+    private Long retryBaseDelayMillis;
+    private Long retryMaxDelayMillis;
+    private Long retryDeadlineMillis;
 
     @Nonnull
     public String getMessage() {
@@ -165,6 +180,90 @@ public class SlackSendStep extends Step {
         this.replyBroadcast = replyBroadcast;
     }
 
+    public Object getReplyTo() {
+        return replyTo;
+    }
+
+    /**
+     * @param replyTo the {@link SlackResponse} of a message posted earlier by a bot user, the message is then posted
+     *                to its thread instead of the channel
+     */
+    @DataBoundSetter
+    public void setReplyTo(Object replyTo) {
+        this.replyTo = replyTo;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @param timestamp the timestamp of a message posted earlier to the channel, which is then replaced instead of
+     *                  posting a new message
+     */
+    @DataBoundSetter
+    public void setTimestamp(String timestamp) {
+        this.timestamp = Util.fixEmpty(timestamp);
+    }
+
+    public boolean getLiveStatus() {
+        return liveStatus;
+    }
+
+    /**
+     * @param liveStatus whether the message posted is then kept up to date with the stages of the run, which needs a
+     *                   bot user
+     */
+    @DataBoundSetter
+    public void setLiveStatus(boolean liveStatus) {
+        this.liveStatus = liveStatus;
+    }
+
+    public Integer getLiveStatusIntervalSeconds() {
+        return liveStatusIntervalSeconds;
+    }
+
+    @DataBoundSetter
+    public void setLiveStatusIntervalSeconds(Integer liveStatusIntervalSeconds) {
+        this.liveStatusIntervalSeconds = liveStatusIntervalSeconds;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    @DataBoundSetter
+    public void setRetryMaxAttempts(Integer retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public Long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    @DataBoundSetter
+    public void setRetryBaseDelayMillis(Long retryBaseDelayMillis) {
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    public Long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    @DataBoundSetter
+    public void setRetryMaxDelayMillis(Long retryMaxDelayMillis) {
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public Long getRetryDeadlineMillis() {
+        return retryDeadlineMillis;
+    }
+
+    @DataBoundSetter
+    public void setRetryDeadlineMillis(Long retryDeadlineMillis) {
+        this.retryDeadlineMillis = retryDeadlineMillis;
+    }
+
     @DataBoundConstructor
     public SlackSendStep() {
     }
@@ -220,11 +319,18 @@ public class SlackSendStep extends Step {
         }
     }
 
-    public static class SlackSendStepExecution extends SynchronousNonBlockingStepExecution<SlackResponse> {
+    /**
+     * Sends the message without holding a thread while Slack answers. The step completes from the callback of the
+     * post, and fails if Jenkins restarts before that since the outcome of the post is then unknown.
+     */
+    public static class SlackSendStepExecution extends StepExecution {
 
         private static final long serialVersionUID = 1L;
 
         private transient final SlackSendStep step;
+        private transient volatile CompletableFuture<?> pending;
+        private transient volatile CompletableFuture<?> posting;
+        private transient volatile boolean stopped;
 
         SlackSendStepExecution(SlackSendStep step, StepContext context) {
             super(context);
@@ -232,8 +338,157 @@ public class SlackSendStep extends Step {
         }
 
         @Override
-        protected SlackResponse run() throws Exception {
+        public boolean start() throws Exception {
+            completeWith(inBackground(this::send));
+            return false;
+        }
+
+        /**
+         * Runs the work off the CPS VM thread, since it resolves credentials, parses attachments and writes to the
+         * log.
+         */
+        <T> CompletableFuture<T> inBackground(Callable<CompletableFuture<T>> work) {
+            CompletableFuture<CompletableFuture<T>> started = new CompletableFuture<>();
+            backgroundExecutor().execute(() -> {
+                if (stopped) {
+                    started.cancel(false);
+                    return;
+                }
+                try {
+                    started.complete(work.call());
+                } catch (Exception e) {
+                    started.completeExceptionally(e);
+                }
+            });
+            return started.thenCompose(Function.identity());
+        }
+
+        Executor backgroundExecutor() {
+            return PublishExecutor.get();
+        }
+
+        /**
+         * Keeps the future of the posts, so that stopping the step cancels them.
+         */
+        <T> CompletableFuture<T> posting(CompletableFuture<T> future) {
+            posting = future;
+            if (stopped) {
+                future.cancel(false);
+            }
+            return future;
+        }
+
+        /**
+         * Completes the step with the outcome of {@code response} once it is known.
+         */
+        void completeWith(CompletableFuture<?> response) {
+            pending = response;
+            response.whenComplete((result, error) -> {
+                pending = null;
+                if (error == null) {
+                    getContext().onSuccess(result);
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (!(cause instanceof CancellationException)) {
+                    getContext().onFailure(cause);
+                }
+            });
+        }
+
+        /**
+         * Stops waiting for Slack and cancels the posts, including scheduled retries. A post already on the wire may
+         * still be delivered.
+         */
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            stopped = true;
+            cancel(posting);
+            cancel(pending);
+            getContext().onFailure(cause);
+        }
+
+        private static void cancel(CompletableFuture<?> future) {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new AbortException(Messages.slackSendInterruptedByRestart()));
+        }
+
+        @Override
+        public String getStatus() {
+            return pending != null ? "waiting for Slack to answer" : null;
+        }
 
+        /**
+         * Resolves the configuration and starts posting.
+         *
+         * @return a future completed with the response, or with {@code null} when the message could not be sent and
+         * the step should not fail
+         */
+        CompletableFuture<SlackResponse> send() throws Exception {
+            TaskListener listener = getContext().get(TaskListener.class);
+            Objects.requireNonNull(listener, "Listener is mandatory here");
+
+            SlackService slackService = resolveSlackService(listener);
+            if (slackService == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            SlackMessage message = toMessage(step.message, step.attachments, step.color, listener);
+            if (message == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            FlowNode node = step.liveStatus ? getContext().get(FlowNode.class) : null;
+            CompletableFuture<Boolean> published;
+            if (step.timestamp != null) {
+                if (step.replyTo != null) {
+                    throw new IllegalArgumentException("replyTo cannot be used with timestamp, which updates the message"
+                            + " identified by channel and timestamp");
+                }
+                String channel = step.channel != null ? step.channel
+                        : Jenkins.get().getDescriptorByType(SlackNotifier.DescriptorImpl.class).getRoom();
+                published = posting(slackService.updateAsync(channel, step.timestamp, message));
+            } else {
+                published = posting(slackService.publishAsync(message));
+            }
+            return published.thenApply(publishSuccess -> {
+                SlackResponse response;
+                try {
+                    response = toResponse(publishSuccess, slackService.getResponseString(), listener);
+                } catch (AbortException e) {
+                    throw new CompletionException(e);
+                }
+                if (node != null && response != null) {
+                    followStages(node, slackService, response, message, listener);
+                }
+                return response;
+            });
+        }
+
+        /**
+         * Keeps the message just posted up to date with the stages of the run.
+         */
+        private void followStages(FlowNode node, SlackService slackService, SlackResponse response,
+                                  SlackMessage message, TaskListener listener) {
+            if (response.getTs() == null || response.getChannelId() == null) {
+                listener.error(Messages.slackSendLiveStatusNeedsBotUser());
+                return;
+            }
+            int interval = step.liveStatusIntervalSeconds != null ? step.liveStatusIntervalSeconds
+                    : LiveStatus.DEFAULT_INTERVAL_SECONDS;
+            // the text of a message without attachments is wrapped in one, so the header is the text as given
+            node.getExecution().addListener(new LiveStatus(slackService, response.getChannelId(), response.getTs(),
+                    step.message, step.attachments != null ? message.getAttachments() : null, step.color, interval));
+        }
+
+        /**
+         * @return the service posting to the channels of the step, or {@code null} after reporting why there is none
+         */
+        SlackService resolveSlackService(TaskListener listener) {
             Jenkins jenkins = Jenkins.get();
             Item item = getItemForCredentials();
             SlackNotifier.DescriptorImpl slackDesc = jenkins.getDescriptorByType(SlackNotifier.DescriptorImpl.class);
@@ -245,11 +500,16 @@ public class SlackSendStep extends Step {
             String token = step.token;
             boolean botUser = step.botUser || slackDesc.isBotUser();
             String channel = step.channel != null ? step.channel : slackDesc.getRoom();
+            if (step.replyTo != null) {
+                channel = step.replyTo instanceof SlackResponse ? ((SlackResponse) step.replyTo).getThreadId() : null;
+                if (channel == null) {
+                    listener.error(Messages.notificationFailedWithException(new IllegalArgumentException(
+                            "replyTo must be the response of a message posted by a bot user")));
+                    return null;
+                }
+            }
             String color = step.color != null ? step.color : "";
 
-            TaskListener listener = getContext().get(TaskListener.class);
-            Objects.requireNonNull(listener, "Listener is mandatory here");
-
             listener.getLogger().println(Messages.slackSendStepValues(
                     defaultIfEmpty(baseUrl), defaultIfEmpty(teamDomain), channel, defaultIfEmpty(color), botUser,
                     defaultIfEmpty(tokenCredentialId))
@@ -262,31 +522,40 @@ public class SlackSendStep extends Step {
                         .notificationFailedWithException(e));
                 return null;
             }
+            return getSlackService(baseUrl, teamDomain, botUser, channel, step.replyBroadcast, populatedToken);
+        }
 
-            SlackService slackService = getSlackService(
-                    baseUrl, teamDomain, botUser, channel, step.replyBroadcast, populatedToken);
-            final boolean publishSuccess;
-            if (step.attachments != null) {
-                JSONArray jsonArray = getAttachmentsAsJSONArray();
-                for (Object object : jsonArray) {
-                    if (object instanceof JSONObject) {
-                        JSONObject jsonNode = ((JSONObject) object);
-                        if (!jsonNode.has("fallback")) {
-                            jsonNode.put("fallback", step.message);
-                        }
+        /**
+         * @param color the color, {@code null} for none
+         * @return the message, or {@code null} after reporting why it cannot be sent
+         */
+        SlackMessage toMessage(String text, Object attachmentsValue, String color, TaskListener listener) {
+            if (color == null) {
+                color = "";
+            }
+            if (attachmentsValue != null) {
+                List<Attachment> attachments = getAttachments(attachmentsValue, listener);
+                if (attachments == null) {
+                    return null;
+                }
+                for (Attachment attachment : attachments) {
+                    if (attachment != null && attachment.getFallback() == null) {
+                        attachment.setFallback(text);
                     }
                 }
-                publishSuccess = slackService.publish(step.message, jsonArray, color);
-            } else if (step.message != null) {
-                publishSuccess = slackService.publish(step.message, color);
+                return new SlackMessage(text, attachments, color);
+            } else if (text != null) {
+                return SlackMessage.colored(text, color);
             } else {
                 listener.error(Messages
                         .notificationFailedWithException(new IllegalArgumentException("No message or attachments provided")));
                 return null;
             }
+        }
+
+        SlackResponse toResponse(boolean publishSuccess, String responseString, TaskListener listener) throws AbortException {
             SlackResponse response = null;
             if (publishSuccess) {
-                String responseString = slackService.getResponseString();
                 if (responseString != null) {
                     try {
                         org.json.JSONObject result = new org.json.JSONObject(responseString);
@@ -308,28 +577,22 @@ public class SlackSendStep extends Step {
             return response;
         }
 
-        JSONArray getAttachmentsAsJSONArray() throws Exception {
-            final TaskListener listener = getContext().get(TaskListener.class);
-            final String jsonString;
-            if (step.attachments instanceof String) {
-                jsonString = (String) step.attachments;
-            } else {
-                jsonString = JsonOutput.toJson(step.attachments);
-            }
-
-            JsonSlurper jsonSlurper = new JsonSlurper();
-            JSON json = null;
+        /**
+         * Reads the attachments given as JSON text or as a list of maps straight into the payload model.
+         *
+         * @return the attachments, or {@code null} after reporting why they are not valid
+         */
+        private static List<Attachment> getAttachments(Object value, TaskListener listener) {
             try {
-                json = jsonSlurper.parseText(jsonString);
-            } catch (JSONException e) {
+                List<Attachment> attachments = Payloads.parseAttachments(value);
+                if (attachments == null) {
+                    listener.error(Messages.notificationFailedWithException(new IllegalArgumentException("Attachments must be JSONArray")));
+                }
+                return attachments;
+            } catch (IOException e) {
                 listener.error(Messages.notificationFailedWithException(e));
                 return null;
             }
-            if (!(json instanceof JSONArray)) {
-                listener.error(Messages.notificationFailedWithException(new IllegalArgumentException("Attachments must be JSONArray")));
-                return null;
-            }
-            return (JSONArray) json;
         }
 
         /**
@@ -358,13 +621,27 @@ public class SlackSendStep extends Step {
             return item;
         }
 
+        /**
+         * @return the retry policy of the global configuration, with the values set on the step taking precedence
+         */
+        RetryPolicy getRetryPolicy(SlackNotifier.DescriptorImpl slackDesc) {
+            return new RetryPolicy(
+                    step.retryMaxAttempts != null ? step.retryMaxAttempts : slackDesc.getRetryMaxAttempts(),
+                    step.retryBaseDelayMillis != null ? step.retryBaseDelayMillis : slackDesc.getRetryBaseDelayMillis(),
+                    step.retryMaxDelayMillis != null ? step.retryMaxDelayMillis : slackDesc.getRetryMaxDelayMillis(),
+                    step.retryDeadlineMillis != null ? step.retryDeadlineMillis : slackDesc.getRetryDeadlineMillis());
+        }
+
         private String defaultIfEmpty(String value) {
             return Util.fixEmpty(value) != null ? value : Messages.slackSendStepValuesEmptyMessage();
         }
 
         //streamline unit testing
         SlackService getSlackService(String baseUrl, String team, boolean botUser, String channel, boolean replyBroadcast, String populatedToken) {
-            return new StandardSlackService(baseUrl, team, botUser, channel, replyBroadcast, populatedToken);
+            SlackNotifier.DescriptorImpl slackDesc = Jenkins.get().getDescriptorByType(SlackNotifier.DescriptorImpl.class);
+            StandardSlackService slackService = slackDesc.createSlackService(baseUrl, team, botUser, channel, replyBroadcast, populatedToken);
+            slackService.setRetryPolicy(getRetryPolicy(slackDesc));
+            return slackService;
         }
     }
 }
@@ -0,0 +1,122 @@
+package jenkins.plugins.slack;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import jenkins.plugins.slack.http.RetryPolicy;
+import jenkins.plugins.slack.payload.SlackMessage;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncSlackServiceTest {
+
+    @Test
+    public void postsWithoutBlockingAndReadsTheResponse() {
+        AsyncHttpClientStub client = new AsyncHttpClientStub(HttpStatus.SC_OK);
+        AsyncSlackService service = new Service("#room1,#room2", true, client);
+
+        CompletableFuture<Boolean> published = service.publishAsync(SlackMessage.colored("message", "good"));
+
+        assertTrue(published.join());
+        assertEquals(2, client.requests.size());
+        assertEquals("{\"ok\":true}", service.getResponseString());
+    }
+
+    @Test
+    public void transientFailureIsRetried() {
+        AsyncHttpClientStub client = new AsyncHttpClientStub(HttpStatus.SC_SERVICE_UNAVAILABLE, HttpStatus.SC_OK);
+        AsyncSlackService service = new Service("#room1", false, client);
+        service.setRetryPolicy(new RetryPolicy(3, 1, 1, 10000));
+
+        assertTrue(service.publish("message"));
+        assertEquals(2, client.requests.size());
+    }
+
+    @Test
+    public void connectionFailureFailsThePost() {
+        AsyncHttpClientStub client = new AsyncHttpClientStub();
+        AsyncSlackService service = new Service("#room1", false, client);
+        service.setRetryPolicy(new RetryPolicy(1, 1, 1, 10000));
+
+        assertFalse(service.publish("message"));
+    }
+
+    private static final class Service extends AsyncSlackService {
+        private final CloseableHttpAsyncClient client;
+
+        Service(String roomId, boolean botUser, CloseableHttpAsyncClient client) {
+            super("", "domain", botUser, roomId, false, "token");
+            this.client = client;
+        }
+
+        @Override
+        protected CloseableHttpAsyncClient getAsyncHttpClient() {
+            return client;
+        }
+    }
+
+    /**
+     * Answers requests with the given status codes in turn, and fails them once there are no more.
+     */
+    private static final class AsyncHttpClientStub extends CloseableHttpAsyncClient {
+        private final Queue<Integer> statusCodes = new LinkedList<>();
+        private final List<HttpRequest> requests = new ArrayList<>();
+
+        AsyncHttpClientStub(Integer... statusCodes) {
+            for (Integer statusCode : statusCodes) {
+                this.statusCodes.add(statusCode);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> Future<T> execute(HttpAsyncRequestProducer requestProducer,
+                HttpAsyncResponseConsumer<T> responseConsumer, HttpContext context, FutureCallback<T> callback) {
+            try {
+                requests.add(requestProducer.generateRequest());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            Integer statusCode = statusCodes.poll();
+            if (statusCode == null) {
+                callback.failed(new ConnectException("Connection refused"));
+            } else {
+                HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, null);
+                response.setEntity(new StringEntity("{\"ok\":true}", "UTF-8"));
+                callback.completed((T) response);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return true;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
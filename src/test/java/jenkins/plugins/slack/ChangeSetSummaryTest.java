@@ -0,0 +1,72 @@
+package jenkins.plugins.slack;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.AffectedFile;
+import hudson.scm.ChangeLogSet.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChangeSetSummaryTest {
+
+    @Test
+    public void summarizesAuthorsFilesAndCommits() {
+        ChangeSetSummary summary = ChangeSetSummary.summarize(changeSet(
+                entry("first", "alice", "a.txt", "b.txt"),
+                entry("second", "bob", "b.txt"),
+                entry("third", "alice", "c.txt")));
+
+        assertEquals(Arrays.asList("alice", "bob"), new ArrayList<>(summary.getAuthors()));
+        assertEquals(3, summary.getFileCount());
+        assertEquals(3, summary.getCommitCount());
+        assertEquals("second", summary.getCommits().get(1).getTitle());
+        assertEquals("bob", summary.getCommits().get(1).getAuthor());
+    }
+
+    @Test
+    public void keepsOnlyTheFirstCommits() {
+        Entry[] entries = new Entry[ChangeSetSummary.MAX_COMMITS + 10];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = entry("commit " + i, "alice");
+        }
+        ChangeSetSummary summary = ChangeSetSummary.summarize(changeSet(entries));
+
+        assertEquals(ChangeSetSummary.MAX_COMMITS + 10, summary.getCommitCount());
+        assertEquals(ChangeSetSummary.MAX_COMMITS, summary.getCommits().size());
+    }
+
+    @Test
+    public void emptyChangeSet() {
+        assertTrue(ChangeSetSummary.summarize(changeSet()).isEmpty());
+    }
+
+    private static ChangeLogSet<Entry> changeSet(Entry... entries) {
+        ChangeLogSet<Entry> changeSet = mock(ChangeLogSet.class);
+        when(changeSet.iterator()).thenReturn(Arrays.asList(entries).iterator());
+        return changeSet;
+    }
+
+    private static Entry entry(String msg, String authorName, String... paths) {
+        User author = mock(User.class);
+        when(author.getDisplayName()).thenReturn(authorName);
+        List<AffectedFile> files = new ArrayList<>();
+        for (String path : paths) {
+            AffectedFile file = mock(AffectedFile.class);
+            when(file.getPath()).thenReturn(path);
+            files.add(file);
+        }
+        Entry entry = mock(Entry.class);
+        when(entry.getMsg()).thenReturn(msg);
+        when(entry.getAuthor()).thenReturn(author);
+        doReturn(files).when(entry).getAffectedFiles();
+        return entry;
+    }
+}
@@ -1,5 +1,7 @@
 package jenkins.plugins.slack;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
@@ -16,11 +18,17 @@ public class CloseableHttpClientStub extends CloseableHttpClient {
     private int numberOfCallsToExecuteMethod;
     private int httpStatus;
     private boolean failAlternateResponses = false;
+    private int unavailableResponses;
     private HttpUriRequest lastRequest = null;
+    private final List<HttpUriRequest> requests = new ArrayList<>();
 
-    public CloseableHttpResponse execute(HttpUriRequest post) {
+    public synchronized CloseableHttpResponse execute(HttpUriRequest post) {
         lastRequest = post;
+        requests.add(post);
         numberOfCallsToExecuteMethod++;
+        if (numberOfCallsToExecuteMethod <= unavailableResponses) {
+            return new CloseableHttpResponseStub(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
         if (failAlternateResponses && (numberOfCallsToExecuteMethod % 2 == 0)) {
             return new CloseableHttpResponseStub(HttpStatus.SC_NOT_FOUND);
         } else {
@@ -60,7 +68,15 @@ public class CloseableHttpClientStub extends CloseableHttpClient {
         this.failAlternateResponses = failAlternateResponses;
     }
 
+    public void setUnavailableResponses(int unavailableResponses) {
+        this.unavailableResponses = unavailableResponses;
+    }
+
     public HttpUriRequest getLastRequest() {
         return lastRequest;
     }
+
+    public synchronized List<HttpUriRequest> getRequests() {
+        return new ArrayList<>(requests);
+    }
 }
@@ -0,0 +1,112 @@
+package jenkins.plugins.slack;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import java.util.Arrays;
+import java.util.List;
+import org.acegisecurity.Authentication;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(CredentialsProvider.class)
+public class CredentialsObtainerTest {
+
+    private final StringCredentials credentials = mock(StringCredentials.class);
+    private final StringCredentials otherCredentials = mock(StringCredentials.class);
+    private final Item item = mock(Item.class);
+
+    @Before
+    public void setUp() {
+        CredentialsObtainer.invalidateCache();
+        when(credentials.getId()).thenReturn("slack-token");
+        when(otherCredentials.getId()).thenReturn("other-token");
+        when(item.getFullName()).thenReturn("folder/job");
+        PowerMockito.mockStatic(CredentialsProvider.class);
+        List<StringCredentials> all = Arrays.asList(credentials, otherCredentials);
+        when(CredentialsProvider.lookupCredentials(eq(StringCredentials.class), any(Item.class),
+                any(Authentication.class), anyListOf(DomainRequirement.class))).thenReturn(all);
+    }
+
+    @Test
+    public void repeatedLookupsAreCached() {
+        assertSame(credentials, CredentialsObtainer.lookupCredentials("slack-token", item));
+        assertSame(credentials, CredentialsObtainer.lookupCredentials("slack-token", item));
+
+        verifyLookups(1);
+    }
+
+    @Test
+    public void credentialsOfTheSameItemAreIndexedFromOneScan() {
+        assertSame(credentials, CredentialsObtainer.lookupCredentials("slack-token", item));
+        assertSame(otherCredentials, CredentialsObtainer.lookupCredentials("other-token", item));
+
+        verifyLookups(1);
+    }
+
+    @Test
+    public void unknownIdFallsBackToAScan() {
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+        assertNull(CredentialsObtainer.lookupCredentials("missing", item));
+
+        verifyLookups(2);
+    }
+
+    @Test
+    public void savingTheFolderOfAnItemClearsItsCache() {
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+        new CredentialsObtainer.CacheInvalidator().onChange(folder("folder"), null);
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+
+        verifyLookups(2);
+    }
+
+    @Test
+    public void savingAnotherFolderKeepsTheCache() {
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+        new CredentialsObtainer.CacheInvalidator().onChange(folder("fold"), null);
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+
+        verifyLookups(1);
+    }
+
+    @Test
+    public void itemsAreCachedSeparately() {
+        Item other = mock(Item.class);
+        when(other.getFullName()).thenReturn("other/job");
+        CredentialsObtainer.lookupCredentials("slack-token", item);
+        CredentialsObtainer.lookupCredentials("slack-token", other);
+
+        verifyLookups(2);
+    }
+
+    private static Saveable folder(String fullName) {
+        Item folder = mock(Item.class, withSettings().extraInterfaces(ItemGroup.class));
+        when(folder.getFullName()).thenReturn(fullName);
+        return folder;
+    }
+
+    private void verifyLookups(int times) {
+        PowerMockito.verifyStatic(times(times));
+        CredentialsProvider.lookupCredentials(eq(StringCredentials.class), any(Item.class),
+                any(Authentication.class), anyListOf(DomainRequirement.class));
+    }
+}
@@ -0,0 +1,89 @@
+package jenkins.plugins.slack;
+
+import hudson.model.Action;
+import hudson.model.FreeStyleBuild;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
+import hudson.util.XStream2;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FailedTestsFingerprintTest {
+
+    @Test
+    public void sameFailuresInAnyOrder() {
+        FailedTestsFingerprint first = FailedTestsFingerprint.create(tests("a.Test.one", "a.Test.two", "b.Test.one"));
+        FailedTestsFingerprint second = FailedTestsFingerprint.create(tests("b.Test.one", "a.Test.one", "a.Test.two", "a.Test.one"));
+        assertTrue(first.sameFailures(second));
+    }
+
+    @Test
+    public void differentFailures() {
+        FailedTestsFingerprint first = FailedTestsFingerprint.create(tests("a.Test.one", "a.Test.two"));
+        FailedTestsFingerprint second = FailedTestsFingerprint.create(tests("a.Test.one", "a.Test.three"));
+        assertFalse(first.sameFailures(second));
+        assertFalse(first.sameFailures(FailedTestsFingerprint.create(tests())));
+    }
+
+    @Test
+    public void storedFingerprintIsUsedWithoutLoadingTests() {
+        FreeStyleBuild build = mock(FreeStyleBuild.class);
+        AbstractTestResultAction<?> tests = mock(AbstractTestResultAction.class);
+        FailedTestsFingerprint stored = FailedTestsFingerprint.create(tests("a.Test.one"));
+        when(build.getAction(FailedTestsFingerprint.class)).thenReturn(stored);
+
+        assertSame(stored, FailedTestsFingerprint.of(build, tests));
+        verify(tests, never()).getFailedTests();
+    }
+
+    @Test
+    public void computedFingerprintIsNotAddedToTheBuild() {
+        FreeStyleBuild build = mock(FreeStyleBuild.class);
+        AbstractTestResultAction tests = mock(AbstractTestResultAction.class);
+        when(tests.getFailedTests()).thenReturn(tests("a.Test.one"));
+
+        assertTrue(FailedTestsFingerprint.of(build, tests).sameFailures(FailedTestsFingerprint.create(tests("a.Test.one"))));
+        verify(build, never()).addOrReplaceAction(any(Action.class));
+    }
+
+    @Test
+    public void recordedFingerprintIsAddedToTheBuild() {
+        FreeStyleBuild build = mock(FreeStyleBuild.class);
+        AbstractTestResultAction tests = mock(AbstractTestResultAction.class);
+        when(tests.getFailedTests()).thenReturn(tests("a.Test.one"));
+
+        FailedTestsFingerprint.record(build, tests);
+        verify(build).addOrReplaceAction(any(FailedTestsFingerprint.class));
+    }
+
+    @Test
+    public void hashesAreStoredAsOneString() {
+        FailedTestsFingerprint fingerprint = FailedTestsFingerprint.create(tests("a.Test.one", "a.Test.two", "b.Test.one"));
+
+        XStream2 xstream = new XStream2();
+        String xml = xstream.toXML(fingerprint);
+
+        assertFalse(xml, xml.contains("<long>"));
+        assertTrue(fingerprint.sameFailures((FailedTestsFingerprint) xstream.fromXML(xml)));
+    }
+
+    private static List<TestResult> tests(String... ids) {
+        List<TestResult> tests = new ArrayList<>();
+        for (String id : ids) {
+            TestResult test = mock(TestResult.class);
+            when(test.getId()).thenReturn(id);
+            tests.add(test);
+        }
+        return tests;
+    }
+}
@@ -0,0 +1,91 @@
+package jenkins.plugins.slack;
+
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
+import java.util.AbstractList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FailedTestsRendererTest {
+
+    @Test
+    public void rendersAllFailedTestsWithinBudget() {
+        StringBuilder out = new StringBuilder();
+        new FailedTestsRenderer(10, 1000, false).render(action(2, 2), out);
+        assertEquals("\n2 Failed Tests:\n"
+                + "\tFooTest0.test0 after 1 ms\n"
+                + "\tFooTest0.test1 after 1 ms\n", out.toString());
+    }
+
+    @Test
+    public void stopsAtLineBudgetWithoutReadingTheRest() {
+        StringBuilder out = new StringBuilder();
+        new FailedTestsRenderer(2, 1000, false).render(action(30000, 2), out);
+        assertEquals("\n30000 Failed Tests:\n"
+                + "\tFooTest0.test0 after 1 ms\n"
+                + "\tFooTest0.test1 after 1 ms\n"
+                + "\t\u2026and 29998 more\n", out.toString());
+    }
+
+    @Test
+    public void stopsAtCharacterBudget() {
+        StringBuilder out = new StringBuilder();
+        new FailedTestsRenderer(100, 40, false).render(action(5, 5), out);
+        assertEquals("\n5 Failed Tests:\n"
+                + "\tFooTest0.test0 after 1 ms\n"
+                + "\t\u2026and 4 more\n", out.toString());
+    }
+
+    @Test
+    public void groupsByTestClass() {
+        StringBuilder out = new StringBuilder();
+        new FailedTestsRenderer(6, 1000, true).render(action(6, 6), out);
+        assertEquals("\n6 Failed Tests:\n"
+                + "\tFooTest0:\n"
+                + "\t\ttest0 after 1 ms\n"
+                + "\t\ttest1 after 1 ms\n"
+                + "\t\ttest2 after 1 ms\n"
+                + "\tFooTest1:\n"
+                + "\t\ttest3 after 1 ms\n"
+                + "\t\u2026and 2 more\n", out.toString());
+    }
+
+    @Test
+    public void rendersNothingWithoutFailures() {
+        StringBuilder out = new StringBuilder();
+        new FailedTestsRenderer(0, 0, false).render(action(0, 0), out);
+        assertEquals("", out.toString());
+    }
+
+    /**
+     * @param readable how many failed tests can be read, reading more fails the test
+     */
+    private static AbstractTestResultAction<?> action(int failCount, int readable) {
+        AbstractTestResultAction<?> action = mock(AbstractTestResultAction.class);
+        when(action.getFailCount()).thenReturn(failCount);
+        List<TestResult> failedTests = new AbstractList<TestResult>() {
+            @Override
+            public TestResult get(int index) {
+                if (index >= readable) {
+                    throw new AssertionError("read failed test " + index + " beyond the budget");
+                }
+                TestResult test = mock(TestResult.class);
+                when(test.getFullDisplayName()).thenReturn("com.example.FooTest" + index / 3 + ".test" + index);
+                when(test.getDurationString()).thenReturn("1 ms");
+                return test;
+            }
+
+            @Override
+            public int size() {
+                return failCount;
+            }
+        };
+        doReturn(failedTests).when(action).getFailedTests();
+        return action;
+    }
+}
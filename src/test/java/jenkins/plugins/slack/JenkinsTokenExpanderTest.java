@@ -0,0 +1,76 @@
+package jenkins.plugins.slack;
+
+import com.google.common.collect.ListMultimap;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleBuild;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.Map;
+import org.jenkinsci.plugins.tokenmacro.TokenMacro;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class JenkinsTokenExpanderTest {
+
+    private final TaskListener listener = mock(TaskListener.class);
+    private final FreeStyleBuild build = mock(FreeStyleBuild.class);
+    private final JenkinsTokenExpander expander = new JenkinsTokenExpander(listener,
+            Collections.singletonList(new Constant("DEFINED_TWICE", "BUILD_USER")));
+
+    @Before
+    public void setUp() throws Exception {
+        EnvVars environment = new EnvVars("DEFINED_TWICE", "from the environment", "OVERRIDDEN", "from the environment");
+        doReturn(environment).when(build).getEnvironment(listener);
+        doReturn(Collections.singletonMap("OVERRIDDEN", "from the build")).when(build).getBuildVariables();
+    }
+
+    @Test
+    public void environmentVariablesComeBeforeMacros() {
+        assertEquals("from the environment", expander.expand("${DEFINED_TWICE}", build));
+        assertEquals("from the environment", expander.expand("$DEFINED_TWICE", build));
+    }
+
+    @Test
+    public void buildVariablesComeBeforeEnvironmentVariables() {
+        assertEquals("from the build", expander.expand("$OVERRIDDEN", build));
+    }
+
+    @Test
+    public void tokensWithArgumentsAreMacros() {
+        assertEquals("macro DEFINED_TWICE", expander.expand("${DEFINED_TWICE, arg=1}", build));
+    }
+
+    @Test
+    public void macrosResolveOtherNames() {
+        assertEquals("Deployed by macro BUILD_USER", expander.expand("Deployed by ${BUILD_USER}", build));
+    }
+
+    private static final class Constant extends TokenMacro {
+        private final String[] names;
+
+        Constant(String... names) {
+            this.names = names;
+        }
+
+        @Override
+        public boolean acceptsMacroName(String macroName) {
+            for (String name : names) {
+                if (name.equals(macroName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String evaluate(AbstractBuild<?, ?> context, TaskListener listener, String macroName,
+                Map<String, String> arguments, ListMultimap<String, String> argumentMultimap) {
+            return "macro " + macroName;
+        }
+    }
+}
@@ -70,4 +70,20 @@ public class MessageBuilderEscapeTest {
         String escaped = messageBuilder.escape(input);
         assertEquals(expected, escaped);
     }
+
+    @Test
+    public void testEscapeApostrophe() throws IOException {
+        String input = "it's <done> & <a href=\"target\">don't</a>";
+        String expected = "it's &lt;done&gt; &amp; <target|don't>";
+        String escaped = messageBuilder.escape(input);
+        assertEquals(expected, escaped);
+    }
+
+    @Test
+    public void testEscapeAnchorWithoutHref() throws IOException {
+        String input = "<a name='x'>{ test }</a>";
+        String expected = "&lt;a name='x'&gt;{ test }&lt;/a&gt;";
+        String escaped = messageBuilder.escape(input);
+        assertEquals(expected, escaped);
+    }
 }
@@ -0,0 +1,65 @@
+package jenkins.plugins.slack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MessageTemplateTest {
+
+    private final List<String> resolved = new ArrayList<>();
+
+    private final MessageTemplate.Resolver resolver = (name, arguments, argumentMultimap) -> {
+        resolved.add(name + arguments);
+        switch (name) {
+            case "BUILD_NUMBER":
+                return "42";
+            case "CHANGES":
+                return "changes " + argumentMultimap.get("format");
+            case "BROKEN":
+                throw new IOException("cannot evaluate");
+            default:
+                return null;
+        }
+    };
+
+    @Test
+    public void evaluatesSimpleAndBracedTokens() {
+        assertEquals("Build 42 (#42)", MessageTemplate.parse("Build $BUILD_NUMBER (#${BUILD_NUMBER})").evaluate(resolver));
+    }
+
+    @Test
+    public void passesArguments() {
+        assertEquals("changes [%a, %m\n]",
+                MessageTemplate.parse("${CHANGES, format=\"%a\", format = \"%m\\n\"}").evaluate(resolver));
+        assertEquals("CHANGES{format=%m\n}", resolved.get(0));
+    }
+
+    @Test
+    public void keepsWhatIsNotATokenAsText() {
+        assertEquals("costs $5, ${ unclosed, ${CHANGES, format=} and $",
+                MessageTemplate.parse("costs $5, ${ unclosed, ${CHANGES, format=} and $").evaluate(resolver));
+        assertEquals("Price: $BUILD_NUMBER", MessageTemplate.parse("Price: $$BUILD_NUMBER").evaluate(resolver));
+    }
+
+    @Test
+    public void keepsTokensThatCannotBeEvaluated() {
+        assertEquals("42 ${UNKNOWN} $BROKEN", MessageTemplate.parse("$BUILD_NUMBER ${UNKNOWN} $BROKEN").evaluate(resolver));
+    }
+
+    @Test
+    public void onlyEvaluatesReferencedTokens() {
+        assertEquals("No tokens here", MessageTemplate.parse("No tokens here").evaluate(resolver));
+        assertEquals(0, resolved.size());
+    }
+
+    @Test
+    public void cachesCompiledTemplates() {
+        String template = "Deployed ${BUILD_NUMBER}";
+
+        assertSame(MessageTemplate.compile(template), MessageTemplate.compile(new String(template)));
+    }
+}
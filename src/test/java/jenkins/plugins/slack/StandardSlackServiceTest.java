@@ -1,6 +1,29 @@
 package jenkins.plugins.slack;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.plugins.slack.http.FormJsonEntity;
+import jenkins.plugins.slack.http.JsonEntity;
+import jenkins.plugins.slack.http.RetryPolicy;
+import jenkins.plugins.slack.payload.SlackMessage;
+import net.sf.json.JSONObject;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.util.EntityUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -137,6 +160,217 @@ public class StandardSlackServiceTest {
         httpClientStub.setHttpStatus(HttpStatus.SC_OK);
         service.setHttpClient(httpClientStub);
         service.publish("message");
-        assertTrue(httpClientStub.getLastRequest().getURI().toString().contains(populatedToken));
+        HttpUriRequest request = httpClientStub.getLastRequest();
+        assertEquals("Bearer " + populatedToken, request.getFirstHeader("Authorization").getValue());
+        assertFalse(request.getURI().toString().contains(populatedToken));
+    }
+
+    @Test
+    public void botUserPostsJsonBody() throws IOException {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", true, "#room1:1528317530", "token");
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        service.publish("message & more", "good");
+
+        HttpEntity entity = ((HttpPost) httpClientStub.getLastRequest()).getEntity();
+        assertEquals(JsonEntity.CONTENT_TYPE, entity.getContentType().getValue());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+        JSONObject json = JSONObject.fromObject(body.toString("UTF-8"));
+        assertEquals("room1", json.getString("channel"));
+        assertEquals("1528317530", json.getString("thread_ts"));
+        assertEquals("message & more", json.getJSONArray("attachments").getJSONObject(0).getString("fallback"));
+    }
+
+    @Test
+    public void updateReplacesTheMessage() throws IOException {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", true, "#room1", "update-token");
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+
+        assertTrue(service.update("C0123", "1528317530.000100", SlackMessage.colored("done", "good")));
+
+        HttpPost post = (HttpPost) httpClientStub.getLastRequest();
+        assertEquals("https://slack.com/api/chat.update", post.getURI().toString());
+        assertEquals("Bearer update-token", post.getFirstHeader("Authorization").getValue());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        post.getEntity().writeTo(body);
+        JSONObject json = JSONObject.fromObject(body.toString("UTF-8"));
+        assertEquals("C0123", json.getString("channel"));
+        assertEquals("1528317530.000100", json.getString("ts"));
+        assertEquals("done", json.getJSONArray("attachments").getJSONObject(0).getString("fallback"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateRejectsChannelNames() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", true, "#room1", "update-token");
+        service.update("#room1", "1528317530.000100", SlackMessage.colored("done", "good"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateRejectsSeveralChannels() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", true, "#room1", "update-token");
+        service.update("C0123,C0456", "1528317530.000100", SlackMessage.colored("done", "good"));
+    }
+
+    @Test
+    public void updateNeedsABotUser() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "token");
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        service.setHttpClient(httpClientStub);
+
+        assertFalse(service.update("C0123", "1528317530.000100", SlackMessage.colored("done", "good")));
+        assertEquals(0, httpClientStub.getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void webhookPostsPayloadAsForm() throws IOException {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "token");
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        service.publish("caf\u00e9 & <more>+", "good");
+
+        HttpEntity entity = ((HttpPost) httpClientStub.getLastRequest()).getEntity();
+        assertEquals(FormJsonEntity.CONTENT_TYPE, entity.getContentType().getValue());
+        List<NameValuePair> form = URLEncodedUtils.parse(EntityUtils.toString(entity), StandardCharsets.UTF_8);
+        assertEquals(1, form.size());
+        assertEquals("payload", form.get(0).getName());
+        JSONObject json = JSONObject.fromObject(form.get(0).getValue());
+        assertEquals("#room1", json.getString("channel"));
+        assertEquals("1", json.getString("link_names"));
+        assertFalse(json.has("text"));
+        JSONObject attachment = json.getJSONArray("attachments").getJSONObject(0);
+        assertEquals("caf\u00e9 & <more>+", attachment.getString("fallback"));
+        assertEquals("good", attachment.getString("color"));
+    }
+
+    @Test
+    public void publishAllKeepsTheOrderOfEachRoom() throws IOException {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1,#room2", "batch-token");
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        List<SlackMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(SlackMessage.colored("message " + i, "good"));
+        }
+
+        List<PublishResult> results = service.publishAll(messages).join();
+
+        assertEquals(4, results.size());
+        for (PublishResult result : results) {
+            assertTrue(result.isSuccess());
+        }
+        Map<String, List<String>> messagesByRoom = new HashMap<>();
+        for (HttpUriRequest request : httpClientStub.getRequests()) {
+            JSONObject json = payloadOf(request);
+            messagesByRoom.computeIfAbsent(json.getString("channel"), room -> new ArrayList<>())
+                    .add(json.getJSONArray("attachments").getJSONObject(0).getString("fallback"));
+        }
+        assertEquals(2, messagesByRoom.size());
+        for (List<String> roomMessages : messagesByRoom.values()) {
+            assertEquals(4, roomMessages.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals("message " + i, roomMessages.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void roomsArePostedConcurrentlyAndTheirResultsCombined() {
+        CountDownLatch allPosting = new CountDownLatch(3);
+        AtomicBoolean oneAfterTheOther = new AtomicBoolean();
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#a,#b,#c", "fan-out-token") {
+            @Override
+            CompletableFuture<PostResult> post(HttpPost post) {
+                String channel;
+                try {
+                    channel = payloadOf(post).getString("channel");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                allPosting.countDown();
+                try {
+                    if (!allPosting.await(5, TimeUnit.SECONDS)) {
+                        oneAfterTheOther.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return CompletableFuture.completedFuture(new PostResult(!channel.endsWith("b"), "{\"channel\":\"" + channel + "\"}"));
+            }
+        };
+
+        assertFalse(service.publish("message"));
+        assertFalse("rooms were posted one after the other", oneAfterTheOther.get());
+        assertTrue(service.getResponseString().endsWith("c\"}"));
+    }
+
+    private static JSONObject payloadOf(HttpUriRequest request) throws IOException {
+        HttpEntity entity = ((HttpPost) request).getEntity();
+        List<NameValuePair> form = URLEncodedUtils.parse(EntityUtils.toString(entity), StandardCharsets.UTF_8);
+        assertEquals(1, form.size());
+        assertEquals("payload", form.get(0).getName());
+        return JSONObject.fromObject(form.get(0).getValue());
+    }
+
+    @Test
+    public void transientFailureIsRetried() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "token");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 1, 10000));
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setUnavailableResponses(2);
+        httpClientStub.setHttpStatus(HttpStatus.SC_OK);
+        service.setHttpClient(httpClientStub);
+        assertTrue(service.publish("message"));
+        assertEquals(3, httpClientStub.getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void retriesStopAfterMaxAttempts() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "token");
+        service.setRetryPolicy(new RetryPolicy(2, 1, 1, 10000));
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setUnavailableResponses(5);
+        service.setHttpClient(httpClientStub);
+        assertFalse(service.publish("message"));
+        assertEquals(2, httpClientStub.getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void permanentFailureIsNotRetried() {
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "token");
+        service.setRetryPolicy(new RetryPolicy(3, 1, 1, 10000));
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setHttpStatus(HttpStatus.SC_NOT_FOUND);
+        service.setHttpClient(httpClientStub);
+        assertFalse(service.publish("message"));
+        assertEquals(1, httpClientStub.getNumberOfCallsToExecuteMethod());
+    }
+
+    @Test
+    public void cancelledPostIsNotRetried() throws Exception {
+        CompletableFuture<CompletableFuture<Boolean>> published = new CompletableFuture<>();
+        StandardSlackServiceStub service = new StandardSlackServiceStub("", "domain", false, "#room1", "cancelledPostToken") {
+            @Override
+            CompletableFuture<PostResult> post(HttpPost post) {
+                CompletableFuture<PostResult> result = super.post(post);
+                published.join().cancel(false);
+                return result;
+            }
+        };
+        service.setRetryPolicy(new RetryPolicy(3, 50, 50, 10000));
+        CloseableHttpClientStub httpClientStub = new CloseableHttpClientStub();
+        httpClientStub.setUnavailableResponses(5);
+        service.setHttpClient(httpClientStub);
+
+        published.complete(service.publishAsync(SlackMessage.colored("message", "")));
+        Thread.sleep(300);
+
+        assertTrue(published.get().isCancelled());
+        assertEquals(1, httpClientStub.getNumberOfCallsToExecuteMethod());
     }
 }
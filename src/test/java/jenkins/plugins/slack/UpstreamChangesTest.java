@@ -0,0 +1,145 @@
+package jenkins.plugins.slack;
+
+import hudson.model.Cause;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.Entry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UpstreamChangesTest {
+
+    private final Map<String, FreeStyleBuild> builds = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private UpstreamChanges upstreamChanges;
+
+    @Before
+    public void setUp() {
+        upstreamChanges = new UpstreamChanges((project, number) -> {
+            lookups.incrementAndGet();
+            return builds.get(project + "#" + number);
+        });
+    }
+
+    @Test
+    public void buildWithChangesIsItsOwn() {
+        FreeStyleBuild build = build("app", 1, true, null);
+        assertSame(build, upstreamChanges.findBuildWithChanges(build));
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    public void followsUpstreamBuildsWithoutChanges() {
+        FreeStyleBuild root = build("root", 7, true, null);
+        build("middle", 3, false, root);
+        FreeStyleBuild leaf = build("leaf", 5, false, builds.get("middle#3"));
+
+        assertSame(root, upstreamChanges.findBuildWithChanges(leaf));
+    }
+
+    @Test
+    public void siblingsReuseTheResolvedUpstreamBuild() {
+        FreeStyleBuild root = build("root", 7, true, null);
+        FreeStyleBuild middle = build("middle", 3, false, root);
+        FreeStyleBuild first = build("first", 1, false, middle);
+        FreeStyleBuild second = build("second", 1, false, middle);
+
+        assertSame(root, upstreamChanges.findBuildWithChanges(first));
+        int lookupsForFirst = lookups.get();
+        assertSame(root, upstreamChanges.findBuildWithChanges(second));
+        assertEquals(lookupsForFirst + 2, lookups.get());
+    }
+
+    @Test
+    public void stopsAtMaximumDepth() {
+        FreeStyleBuild upstream = build("job0", 1, true, null);
+        for (int i = 1; i <= UpstreamChanges.MAX_DEPTH + 1; i++) {
+            upstream = build("job" + i, 1, false, upstream);
+        }
+        assertNull(upstreamChanges.findBuildWithChanges(upstream));
+    }
+
+    @Test
+    public void walkStoppedByTheDepthCapIsNotRemembered() {
+        FreeStyleBuild upstream = build("job0", 1, true, null);
+        for (int i = 1; i <= UpstreamChanges.MAX_DEPTH + 1; i++) {
+            upstream = build("job" + i, 1, false, upstream);
+        }
+        assertNull(upstreamChanges.findBuildWithChanges(upstream));
+
+        FreeStyleBuild sibling = build("sibling", 1, false, builds.get("job2#1"));
+        assertSame(builds.get("job0#1"), upstreamChanges.findBuildWithChanges(sibling));
+    }
+
+    @Test
+    public void walkStoppedByAFailedLookupIsNotRemembered() {
+        FreeStyleBuild middle = build("middle", 3, false, null);
+        upstreamCause(middle, "root", 7);
+        FreeStyleBuild first = build("first", 1, false, middle);
+        assertNull(upstreamChanges.findBuildWithChanges(first));
+
+        FreeStyleBuild root = build("root", 7, true, null);
+        FreeStyleBuild second = build("second", 1, false, middle);
+        assertSame(root, upstreamChanges.findBuildWithChanges(second));
+    }
+
+    @Test
+    public void stopsOnCycles() {
+        FreeStyleBuild first = build("first", 1, false, null);
+        FreeStyleBuild second = build("second", 1, false, first);
+        upstreamCause(first, "second", 1);
+
+        assertNull(upstreamChanges.findBuildWithChanges(second));
+    }
+
+    @Test
+    public void missingUpstreamBuild() {
+        FreeStyleBuild build = build("app", 1, false, null);
+        upstreamCause(build, "deleted", 4);
+
+        assertNull(upstreamChanges.findBuildWithChanges(build));
+    }
+
+    private FreeStyleBuild build(String project, int number, boolean hasChanges, FreeStyleBuild upstream) {
+        FreeStyleProject job = mock(FreeStyleProject.class);
+        when(job.getFullName()).thenReturn(project);
+        FreeStyleBuild build = mock(FreeStyleBuild.class);
+        when(build.getProject()).thenReturn(job);
+        when(build.getNumber()).thenReturn(number);
+        ChangeLogSet<Entry> changeSet = mock(ChangeLogSet.class);
+        if (hasChanges) {
+            Entry entry = mock(Entry.class);
+            when(entry.getMsg()).thenReturn("change");
+            when(entry.getAuthor()).thenReturn(mock(User.class));
+            when(changeSet.iterator()).thenReturn(Collections.singletonList(entry).iterator());
+        } else {
+            when(changeSet.iterator()).thenReturn(Collections.<Entry>emptyList().iterator());
+        }
+        doReturn(changeSet).when(build).getChangeSet();
+        if (upstream != null) {
+            upstreamCause(build, upstream.getProject().getFullName(), upstream.getNumber());
+        }
+        builds.put(project + "#" + number, build);
+        return build;
+    }
+
+    private static void upstreamCause(FreeStyleBuild build, String project, int number) {
+        Cause.UpstreamCause cause = mock(Cause.UpstreamCause.class);
+        when(cause.getUpstreamProject()).thenReturn(project);
+        when(cause.getUpstreamBuild()).thenReturn(number);
+        when(build.getCause(Cause.UpstreamCause.class)).thenReturn(cause);
+    }
+}
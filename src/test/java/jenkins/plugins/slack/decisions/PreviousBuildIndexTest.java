@@ -0,0 +1,115 @@
+package jenkins.plugins.slack.decisions;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PreviousBuildIndexTest {
+
+    private final PreviousBuildIndex index = new PreviousBuildIndex();
+    private FreeStyleProject project;
+    private FreeStyleBuild failed;
+    private FreeStyleBuild aborted;
+    private FreeStyleBuild current;
+
+    @Before
+    public void setUp() {
+        project = mock(FreeStyleProject.class);
+        failed = build(1, Result.FAILURE, null);
+        aborted = build(2, Result.ABORTED, failed);
+        current = build(3, Result.SUCCESS, aborted);
+        when(project.getLastBuild()).thenReturn(current);
+    }
+
+    @Test
+    public void skipsAbortedBuildsAndIndexesTheJob() {
+        assertSame(failed, PreviousBuildIndex.previousNonAbortedBuild(current));
+        assertEquals(Result.FAILURE, PreviousBuildIndex.previousNonAbortedResult(current));
+
+        verify(current, times(1)).getPreviousCompletedBuild();
+        verify(aborted, times(1)).getPreviousCompletedBuild();
+    }
+
+    @Test
+    public void completedBuildsKeepTheIndexUpToDate() {
+        PreviousBuildIndex.previousNonAbortedResult(current);
+        index.onCompleted(current, mock(TaskListener.class));
+        FreeStyleBuild next = build(4, null, current);
+        when(project.getLastBuild()).thenReturn(next);
+
+        assertEquals(Result.SUCCESS, PreviousBuildIndex.previousNonAbortedResult(next));
+        assertSame(current, PreviousBuildIndex.previousNonAbortedBuild(next));
+        verify(next, never()).getPreviousCompletedBuild();
+    }
+
+    @Test
+    public void completedBuildIsStillComparedWithTheBuildBeforeIt() {
+        PreviousBuildIndex.previousNonAbortedResult(current);
+        index.onCompleted(current, mock(TaskListener.class));
+
+        assertEquals(Result.FAILURE, new Context(current).previousResultOrSuccess());
+        assertSame(failed, PreviousBuildIndex.previousNonAbortedBuild(current));
+        verify(current, times(1)).getPreviousCompletedBuild();
+    }
+
+    @Test
+    public void deletedBuildBeforeTheCompletedBuildIsForgotten() {
+        PreviousBuildIndex.previousNonAbortedResult(current);
+        index.onCompleted(current, mock(TaskListener.class));
+        index.onDeleted(failed);
+        when(aborted.getPreviousCompletedBuild()).thenReturn(null);
+
+        assertNull(PreviousBuildIndex.previousNonAbortedResult(current));
+        verify(current, times(2)).getPreviousCompletedBuild();
+    }
+
+    @Test
+    public void abortedBuildsDoNotChangeTheIndex() {
+        PreviousBuildIndex.previousNonAbortedResult(current);
+        FreeStyleBuild abortedAgain = build(4, Result.ABORTED, current);
+        index.onCompleted(abortedAgain, mock(TaskListener.class));
+
+        assertEquals(Result.FAILURE, PreviousBuildIndex.previousNonAbortedResult(build(5, null, abortedAgain)));
+    }
+
+    @Test
+    public void noPreviousBuild() {
+        FreeStyleBuild first = build(1, null, null);
+        when(project.getLastBuild()).thenReturn(first);
+
+        assertNull(PreviousBuildIndex.previousNonAbortedBuild(first));
+        assertNull(PreviousBuildIndex.previousNonAbortedResult(first));
+        verify(first, times(1)).getPreviousCompletedBuild();
+    }
+
+    @Test
+    public void deletedBuildIsForgotten() {
+        PreviousBuildIndex.previousNonAbortedResult(current);
+        index.onDeleted(failed);
+        when(failed.getResult()).thenReturn(Result.UNSTABLE);
+
+        assertEquals(Result.UNSTABLE, PreviousBuildIndex.previousNonAbortedResult(current));
+    }
+
+    private FreeStyleBuild build(int number, Result result, FreeStyleBuild previousCompleted) {
+        FreeStyleBuild build = mock(FreeStyleBuild.class);
+        when(build.getParent()).thenReturn(project);
+        when(build.getNumber()).thenReturn(number);
+        when(build.getResult()).thenReturn(result);
+        when(build.getPreviousCompletedBuild()).thenReturn(previousCompleted);
+        when(project.getBuildByNumber(number)).thenReturn(build);
+        return build;
+    }
+}
@@ -0,0 +1,78 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.model.Result;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jenkins.plugins.slack.SlackService;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class NotificationCoalescerTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final NotificationCoalescer coalescer = new NotificationCoalescer((task, delay) -> scheduled.add(task));
+    private final SlackService slack = mock(SlackService.class);
+
+    @Test
+    public void firstNotificationIsPostedRightAway() {
+        coalescer.submit("job", 60000, 20, event(1, Result.FAILURE));
+
+        verify(slack).publish("build #1", "danger");
+        assertEquals(1, scheduled.size());
+    }
+
+    @Test
+    public void notificationsInTheWindowArePostedAsOneSummary() {
+        coalescer.submit("job", 60000, 20, event(1, Result.FAILURE));
+        coalescer.submit("job", 60000, 20, event(2, Result.FAILURE));
+        coalescer.submit("job", 60000, 20, event(3, Result.SUCCESS));
+        verify(slack).publish("build #1", "danger");
+        verifyNoMoreInteractions(slack);
+
+        runScheduled();
+        verify(slack).publish("2 builds: 1 failed, 1 succeeded, latest #3\nbuild #3", "good");
+
+        runScheduled();
+        assertEquals(0, coalescer.getOpenWindowCount());
+    }
+
+    @Test
+    public void fullBatchIsPostedWithoutWaitingForTheWindow() {
+        coalescer.submit("job", 60000, 2, event(1, Result.SUCCESS));
+        coalescer.submit("job", 60000, 2, event(2, Result.UNSTABLE));
+        coalescer.submit("job", 60000, 2, event(3, Result.UNSTABLE));
+
+        verify(slack).publish("2 builds: 2 unstable, latest #3\nbuild #3", "warning");
+    }
+
+    @Test
+    public void jobsAreCoalescedSeparately() {
+        coalescer.submit("job", 60000, 20, event(1, Result.SUCCESS));
+        coalescer.submit("other", 60000, 20, event(7, Result.SUCCESS));
+
+        verify(slack).publish("build #1", "good");
+        verify(slack).publish("build #7", "good");
+    }
+
+    @Test
+    public void summaryListsEveryOutcome() {
+        assertEquals("4 builds: 1 failed, 1 aborted, 2 succeeded, latest #4", NotificationCoalescer.summarize(Arrays.asList(
+                event(1, Result.SUCCESS), event(2, Result.FAILURE), event(3, Result.ABORTED), event(4, Result.SUCCESS))));
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private NotificationCoalescer.Event event(int number, Result result) {
+        String color = result == Result.SUCCESS ? "good" : result == Result.FAILURE ? "danger" : "warning";
+        return new NotificationCoalescer.Event(number, result, "build #" + number, color, slack);
+    }
+}
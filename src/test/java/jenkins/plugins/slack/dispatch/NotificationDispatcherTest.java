@@ -0,0 +1,165 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.init.Terminator;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.plugins.slack.http.AsyncHttpClientProvider;
+import jenkins.plugins.slack.http.HttpClientProvider;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationDispatcherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void dropNewestRejectsNotificationsWhenFull() throws Exception {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(1, OverflowPolicy.DROP_NEWEST);
+        occupyWorkers(dispatcher);
+
+        assertTrue(dispatcher.dispatch("queued", record("queued")));
+        assertFalse(dispatcher.dispatch("dropped", record("dropped")));
+
+        release.countDown();
+        dispatcher.drain();
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertTrue(sent.contains("queued"));
+        assertFalse(sent.contains("dropped"));
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewNotification() throws Exception {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(1, OverflowPolicy.DROP_OLDEST);
+        occupyWorkers(dispatcher);
+
+        assertTrue(dispatcher.dispatch("oldest", record("oldest")));
+        assertTrue(dispatcher.dispatch("newest", record("newest")));
+
+        release.countDown();
+        dispatcher.drain();
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertTrue(sent.contains("newest"));
+        assertFalse(sent.contains("oldest"));
+    }
+
+    @Test
+    public void droppedNotificationIsReported() throws Exception {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(1, OverflowPolicy.DROP_OLDEST);
+        occupyWorkers(dispatcher);
+        List<String> dropped = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatch("oldest", record("oldest"), () -> dropped.add("oldest"));
+        dispatcher.dispatch("newest", record("newest"), () -> dropped.add("newest"));
+
+        release.countDown();
+        dispatcher.drain();
+        assertEquals(1, dropped.size());
+        assertEquals("oldest", dropped.get(0));
+    }
+
+    @Test
+    public void drainSendsEverythingQueued() throws Exception {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(10, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatcher.dispatch("n" + i, record("n" + i)));
+        }
+
+        release.countDown();
+        dispatcher.drain();
+        assertEquals(10, sent.size());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void rejectsNotificationsAfterDrain() throws Exception {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(10, OverflowPolicy.BLOCK);
+        dispatcher.drain();
+
+        assertFalse(dispatcher.dispatch("late", record("late")));
+    }
+
+    @Test
+    public void queuedNotificationIsSentBeforeTheHttpClientsAndExecutorsStop() throws Exception {
+        ScheduledExecutorService publishExecutor = PublishExecutor.get();
+        AtomicBoolean sameExecutor = new AtomicBoolean();
+        assertTrue(NotificationDispatcher.get().dispatch("queued", () -> {
+            awaitRelease();
+            sameExecutor.set(PublishExecutor.get() == publishExecutor);
+            sent.add(PublishExecutor.schedule(() -> "queued", 0).join());
+        }));
+
+        runTerminatorsInMilestoneOrder(NotificationDispatcher.class, PublishExecutor.class, RenderExecutor.class,
+                HttpClientProvider.class, AsyncHttpClientProvider.class);
+
+        assertEquals(Collections.singletonList("queued"), sent);
+        assertTrue("the publish executor was shut down before the queue was drained", sameExecutor.get());
+    }
+
+    /**
+     * Runs the terminators as early as their milestones allow, those attaining no milestone first, and lets the
+     * queued notifications go when the dispatcher starts draining.
+     */
+    private void runTerminatorsInMilestoneOrder(Class<?>... types) throws Exception {
+        List<Method> pending = new ArrayList<>();
+        for (Class<?> type : types) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Terminator.class)) {
+                    pending.add(method);
+                }
+            }
+        }
+        Set<String> attained = new HashSet<>();
+        while (!pending.isEmpty()) {
+            Method next = pending.stream()
+                    .filter(method -> attained.containsAll(Arrays.asList(method.getAnnotation(Terminator.class).requires())))
+                    .min(Comparator.comparingInt(method -> method.getAnnotation(Terminator.class).attains().length))
+                    .orElseThrow(() -> new AssertionError("a terminator requires a milestone that is never attained"));
+            pending.remove(next);
+            if (next.getDeclaringClass() == NotificationDispatcher.class) {
+                release.countDown();
+            }
+            next.invoke(null);
+            attained.addAll(Arrays.asList(next.getAnnotation(Terminator.class).attains()));
+        }
+    }
+
+    private void occupyWorkers(NotificationDispatcher dispatcher) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(NotificationDispatcher.WORKERS);
+        for (int i = 0; i < NotificationDispatcher.WORKERS; i++) {
+            dispatcher.dispatch("busy", () -> {
+                started.countDown();
+                awaitRelease();
+            });
+        }
+        started.await();
+    }
+
+    private Runnable record(String name) {
+        return () -> {
+            awaitRelease();
+            sent.add(name);
+        };
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
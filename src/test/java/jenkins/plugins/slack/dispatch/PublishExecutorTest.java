@@ -0,0 +1,54 @@
+package jenkins.plugins.slack.dispatch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PublishExecutorTest {
+
+    @Test
+    public void dropNewestRejectsTasksWhenFull() throws Exception {
+        CompletableFuture<String> waiting = PublishExecutor.schedule(() -> "waiting", 200, 1, OverflowPolicy.DROP_NEWEST);
+        CompletableFuture<String> dropped = PublishExecutor.schedule(() -> "dropped", 0, 1, OverflowPolicy.DROP_NEWEST);
+
+        assertRejected(dropped);
+        assertEquals("waiting", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, PublishExecutor.getWaitingCount());
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewTask() throws Exception {
+        CompletableFuture<String> oldest = PublishExecutor.schedule(() -> "oldest", 60000, 1, OverflowPolicy.DROP_OLDEST);
+        CompletableFuture<String> newest = PublishExecutor.schedule(() -> "newest", 0, 1, OverflowPolicy.DROP_OLDEST);
+
+        assertRejected(oldest);
+        assertEquals("newest", newest.get(5, TimeUnit.SECONDS));
+        assertEquals(0, PublishExecutor.getWaitingCount());
+    }
+
+    @Test
+    public void blockWaitsUntilATaskStarts() throws Exception {
+        CompletableFuture<String> waiting = PublishExecutor.schedule(() -> "waiting", 200, 1, OverflowPolicy.BLOCK);
+        long start = System.nanoTime();
+        CompletableFuture<String> blocked = PublishExecutor.schedule(() -> "blocked", 0, 1, OverflowPolicy.BLOCK);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+        assertEquals("waiting", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the task to be dropped");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jenkins.plugins.slack.dispatch;
+
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import jenkins.model.Jenkins;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RenderExecutorTest {
+
+    @After
+    public void shutdown() {
+        RenderExecutor.shutdown();
+    }
+
+    @Test
+    public void returnsTheRenderedMessage() {
+        assertEquals("full", RenderExecutor.render("job #1", () -> "full", () -> "short", 5000));
+    }
+
+    @Test
+    public void fallsBackWhenRenderingTakesTooLong() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        String message = RenderExecutor.render("job #1", () -> {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "full";
+        }, () -> "short", 50);
+
+        assertEquals("short", message);
+        assertTrue("the renderer was not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rendersWithTheAuthenticationOfTheCaller() {
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+            assertEquals(ACL.SYSTEM.getName(),
+                    RenderExecutor.render("job #1", () -> Jenkins.getAuthentication().getName(), () -> "short", 5000));
+        }
+    }
+
+    @Test
+    public void renderersThatTimedOutDoNotFillTheQueue() {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> stuck = () -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignores interrupts, like a macro stuck on I/O
+                }
+            }
+            return "full";
+        };
+        try {
+            for (int i = 0; i < RenderExecutor.THREADS + RenderExecutor.QUEUE_CAPACITY + 10; i++) {
+                assertEquals("short", RenderExecutor.render("job #" + i, stuck, () -> "short", 1));
+            }
+            assertEquals(0, RenderExecutor.get().getQueue().size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void propagatesRenderingErrors() {
+        RenderExecutor.render("job #1", () -> {
+            throw new IllegalArgumentException("bad token");
+        }, () -> "short", 5000);
+    }
+}
@@ -0,0 +1,77 @@
+package jenkins.plugins.slack.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import jenkins.plugins.slack.payload.Payloads;
+import org.apache.http.nio.ContentEncoder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonEntityTest {
+
+    private final Object payload = Collections.singletonMap("text", "a message longer than the channel takes at once");
+
+    @Test
+    public void writesToTheChannelAndKeepsOnlyWhatItDidNotTake() throws Exception {
+        JsonEntity entity = new JsonEntity(payload);
+        SlowEncoder encoder = new SlowEncoder(16);
+
+        entity.produceContent(encoder, null);
+        assertEquals(16, encoder.written.size());
+        assertFalse(encoder.isCompleted());
+
+        while (!encoder.isCompleted()) {
+            entity.produceContent(encoder, null);
+        }
+        assertEquals(Payloads.toJson(payload), encoder.written.toString("UTF-8"));
+    }
+
+    @Test
+    public void retryStartsOver() throws Exception {
+        JsonEntity entity = new JsonEntity(payload);
+        entity.produceContent(new SlowEncoder(16), null);
+        entity.close();
+
+        SlowEncoder encoder = new SlowEncoder(Integer.MAX_VALUE);
+        entity.produceContent(encoder, null);
+
+        assertTrue(encoder.isCompleted());
+        assertEquals(Payloads.toJson(payload), encoder.written.toString("UTF-8"));
+    }
+
+    /**
+     * Takes at most a given number of bytes per call, as a channel whose buffer is full.
+     */
+    private static final class SlowEncoder implements ContentEncoder {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int perCall;
+        private boolean completed;
+
+        SlowEncoder(int perCall) {
+            this.perCall = perCall;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = Math.min(perCall, src.remaining());
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            written.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package jenkins.plugins.slack.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final RateLimiter rateLimiter = new RateLimiter(1.0, 2, clock::get);
+
+    @Test
+    public void burstIsPostedRightAway() {
+        assertEquals(0, rateLimiter.reserve("token", "general"));
+        assertEquals(0, rateLimiter.reserve("token", "general"));
+        assertEquals(0, rateLimiter.getDelayedCount());
+    }
+
+    @Test
+    public void postsBeyondTheBurstAreSpacedOneSecondApart() {
+        rateLimiter.reserve("token", "general");
+        rateLimiter.reserve("token", "general");
+
+        assertEquals(1000, rateLimiter.reserve("token", "general"));
+        assertEquals(2000, rateLimiter.reserve("token", "general"));
+        assertEquals(2, rateLimiter.getDelayedCount());
+    }
+
+    @Test
+    public void bucketsRefillOverTime() {
+        rateLimiter.reserve("token", "general");
+        rateLimiter.reserve("token", "general");
+
+        advance(1000);
+
+        assertEquals(0, rateLimiter.reserve("token", "general"));
+    }
+
+    @Test
+    public void channelsAndTokensHaveSeparateBuckets() {
+        rateLimiter.reserve("token", "general");
+        rateLimiter.reserve("token", "general");
+
+        assertEquals(0, rateLimiter.reserve("token", "random"));
+        assertEquals(0, rateLimiter.reserve("other-token", "general"));
+    }
+
+    @Test
+    public void tokensWithTheSameHashCodeHaveSeparateBuckets() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        rateLimiter.reserve("Aa", "general");
+        rateLimiter.reserve("Aa", "general");
+
+        assertEquals(0, rateLimiter.reserve("BB", "general"));
+    }
+
+    @Test
+    public void throttlingWaitsForRetryAfter() {
+        rateLimiter.throttle("token", "general", 30000);
+
+        assertEquals(30000, rateLimiter.reserve("token", "general"));
+        assertEquals(1, rateLimiter.getThrottledCount());
+    }
+
+    @Test
+    public void droppedMessagesAreCounted() {
+        rateLimiter.recordDropped();
+
+        assertEquals(1, rateLimiter.getDroppedCount());
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,67 @@
+package jenkins.plugins.slack.http;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import org.apache.http.HttpHost;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(4, 100, 1000, 5000);
+
+    @Test
+    public void failuresAfterTheRequestWasSentAreNotRetried() {
+        assertFalse(RetryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+        assertFalse(RetryPolicy.isTransient(new NoHttpResponseException("slack.com failed to respond")));
+        assertFalse(RetryPolicy.isTransient(new IOException(new SocketException("Connection reset"))));
+    }
+
+    @Test
+    public void backoffDoublesUpToTheMaximumDelay() {
+        assertEquals(100, policy.delayBeforeRetry(1, 1.0));
+        assertEquals(200, policy.delayBeforeRetry(2, 1.0));
+        assertEquals(400, policy.delayBeforeRetry(3, 1.0));
+        assertEquals(1000, policy.delayBeforeRetry(5, 1.0));
+        assertEquals(1000, policy.delayBeforeRetry(100, 1.0));
+    }
+
+    @Test
+    public void jitterPicksADelayBelowTheBackoff() {
+        assertEquals(0, policy.delayBeforeRetry(3, 0.0));
+        assertEquals(200, policy.delayBeforeRetry(3, 0.5));
+    }
+
+    @Test
+    public void retriesStopAtMaxAttemptsOrDeadline() {
+        assertTrue(policy.canRetry(3, 0, 0));
+        assertFalse(policy.canRetry(4, 0, 0));
+        assertTrue(policy.canRetry(1, 4000, 1000));
+        assertFalse(policy.canRetry(1, 4500, 1000));
+    }
+
+    @Test
+    public void onlyTransientFailuresAreRetried() {
+        assertTrue(RetryPolicy.isTransient(503));
+        assertTrue(RetryPolicy.isTransient(502));
+        assertTrue(RetryPolicy.isTransient(504));
+        assertFalse(RetryPolicy.isTransient(500));
+        assertFalse(RetryPolicy.isTransient(404));
+        assertTrue(RetryPolicy.isTransient(new ConnectTimeoutException()));
+        assertTrue(RetryPolicy.isTransient(new ConnectionPoolTimeoutException("Timeout waiting for connection")));
+        assertTrue(RetryPolicy.isTransient(new IOException(new ConnectException("Connection refused"))));
+        assertTrue(RetryPolicy.isTransient(new HttpHostConnectException(new ConnectException("Connection refused"),
+                new HttpHost("slack.com", 443))));
+        assertFalse(RetryPolicy.isTransient(new UnknownHostException("slack.invalid")));
+    }
+}
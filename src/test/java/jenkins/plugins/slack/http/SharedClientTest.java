@@ -0,0 +1,83 @@
+package jenkins.plugins.slack.http;
+
+import hudson.ProxyConfiguration;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SharedClientTest {
+
+    private ProxyConfiguration proxy;
+    private long now;
+    private final List<Closeable> clients = new ArrayList<>();
+    private final List<ConnPoolControl<?>> pools = new ArrayList<>();
+
+    private final SharedClient<Closeable> shared = new SharedClient<>("test client", configuration -> {
+        Closeable client = mock(Closeable.class);
+        ConnPoolControl<?> pool = mock(ConnPoolControl.class);
+        when(pool.getTotalStats()).thenReturn(new PoolStats(0, 0, 0, 10));
+        clients.add(client);
+        pools.add(pool);
+        return new SharedClient.Pooled<>(client, pool, () -> { });
+    }, () -> proxy, () -> now);
+
+    @Test
+    public void reusesTheClientUntilTheProxyChanges() {
+        Closeable client = shared.get();
+        assertSame(client, shared.get());
+
+        proxy = proxy("proxy-user");
+
+        assertNotSame(client, shared.get());
+        assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void replacedClientIsClosedOnceItsPostsAreDone() throws IOException {
+        Closeable replaced = shared.get();
+        when(pools.get(0).getTotalStats()).thenReturn(new PoolStats(1, 0, 0, 10));
+        proxy = proxy("proxy-user");
+        shared.get();
+
+        now += SharedClient.RETIRED_GRACE_MILLIS;
+        shared.evictIdleConnections();
+        verify(replaced, never()).close();
+
+        when(pools.get(0).getTotalStats()).thenReturn(new PoolStats(0, 0, 1, 10));
+        shared.evictIdleConnections();
+        verify(replaced).close();
+        verify(clients.get(1), never()).close();
+    }
+
+    @Test
+    public void replacedClientIsKeptForTheGracePeriod() throws IOException {
+        Closeable replaced = shared.get();
+        proxy = proxy("proxy-user");
+        shared.get();
+
+        shared.evictIdleConnections();
+        verify(replaced, never()).close();
+
+        now += SharedClient.RETIRED_GRACE_MILLIS;
+        shared.evictIdleConnections();
+        verify(replaced).close();
+    }
+
+    private static ProxyConfiguration proxy(String userName) {
+        ProxyConfiguration proxy = mock(ProxyConfiguration.class);
+        when(proxy.getUserName()).thenReturn(userName);
+        return proxy;
+    }
+}
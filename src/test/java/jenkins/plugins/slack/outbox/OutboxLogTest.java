@@ -0,0 +1,84 @@
+package jenkins.plugins.slack.outbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void unacknowledgedRecordsAreRecoveredAfterReopening() throws IOException {
+        File directory = folder.newFolder();
+        try (OutboxLog log = OutboxLog.open(directory, 1024 * 1024, 1)) {
+            long first = log.append(bytes("first"));
+            log.append(bytes("second"));
+            log.ack(first);
+        }
+
+        try (OutboxLog log = OutboxLog.open(directory, 1024 * 1024, 1)) {
+            Map<Long, byte[]> recovered = log.recovered();
+            assertEquals(1, recovered.size());
+            assertEquals("second", string(recovered.values().iterator().next()));
+            long third = log.append(bytes("third"));
+            assertTrue(third > recovered.keySet().iterator().next());
+        }
+    }
+
+    @Test
+    public void acknowledgedSegmentsAreDeleted() throws IOException {
+        File directory = folder.newFolder();
+        try (OutboxLog log = OutboxLog.open(directory, 64, 16)) {
+            long first = log.append(bytes("first notification"));
+            long second = log.append(bytes("second notification"));
+            log.append(bytes("third notification"));
+            assertTrue(log.segmentCount() > 1);
+
+            File firstSegment = new File(directory, String.format("segment-%020d.log", 1));
+            log.ack(second);
+            assertTrue(firstSegment.exists());
+            log.ack(first);
+            assertFalse(firstSegment.exists());
+            assertEquals(1, log.size());
+        }
+    }
+
+    @Test
+    public void partiallyWrittenRecordIsIgnored() throws IOException {
+        File directory = folder.newFolder();
+        try (OutboxLog log = OutboxLog.open(directory, 1024 * 1024, 1)) {
+            log.append(bytes("complete"));
+            log.append(bytes("torn"));
+        }
+        File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (OutboxLog log = OutboxLog.open(directory, 1024 * 1024, 1)) {
+            Map<Long, byte[]> recovered = log.recovered();
+            assertEquals(1, recovered.size());
+            assertEquals("complete", string(recovered.values().iterator().next()));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package jenkins.plugins.slack.payload;
+
+import groovy.lang.GString;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import jenkins.plugins.slack.http.FormJsonEntity;
+import org.codehaus.groovy.runtime.GStringImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PayloadsTest {
+
+    @Test
+    public void coloredMessageKeepsTheWireFormat() {
+        assertEquals("[{\"fallback\":\"hi\",\"color\":\"good\",\"fields\":[{\"value\":\"hi\",\"short\":false}],"
+                        + "\"mrkdwn_in\":[\"pretext\",\"text\",\"fields\"]}]",
+                Payloads.toJson(SlackMessage.colored("hi", "good").getAttachments()));
+    }
+
+    @Test
+    public void unknownPropertiesAreKeptInOrder() throws IOException {
+        String json = "[{\"title\":\"t\",\"color\":\"danger\",\"actions\":[{\"type\":\"button\"}],\"author_name\":\"a\"}]";
+        List<Attachment> attachments = Payloads.parseAttachments(json);
+
+        assertEquals("danger", attachments.get(0).getColor());
+        assertEquals("[{\"color\":\"danger\",\"title\":\"t\",\"actions\":[{\"type\":\"button\"}],\"author_name\":\"a\"}]",
+                Payloads.toJson(attachments));
+    }
+
+    @Test
+    public void unknownFieldPropertiesAreKept() throws IOException {
+        String json = "[{\"fields\":[{\"title\":\"t\",\"value\":\"v\",\"short\":true,\"emoji\":true}]}]";
+        List<Attachment> attachments = Payloads.parseAttachments(json);
+
+        assertEquals(Collections.singletonMap("emoji", true), attachments.get(0).getFields().get(0).getProperties());
+        assertEquals(json, Payloads.toJson(attachments));
+    }
+
+    @Test
+    public void pipelineValuesAreConverted() throws IOException {
+        GString title = new GStringImpl(new Object[]{42}, new String[]{"Build #", ""});
+        Map<String, Object> attachment = Collections.singletonMap("title", title);
+
+        List<Attachment> attachments = Payloads.parseAttachments(Collections.singletonList(attachment));
+
+        assertEquals("Build #42", attachments.get(0).get("title"));
+    }
+
+    @Test(expected = IOException.class)
+    public void attachmentsMustBeAnArray() throws IOException {
+        Payloads.parseAttachments("{\"title\":\"t\"}");
+    }
+
+    @Test
+    public void formEntityEncodesLikeUrlEncoder() throws IOException {
+        SlackMessage message = SlackMessage.colored("caf\u00e9 & <b>*bold*</b> 100% \"quoted\"\n", "good");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new FormJsonEntity("payload", message.getAttachments()).writeTo(body);
+
+        String encoded = body.toString("US-ASCII");
+        assertEquals("payload=" + URLEncoder.encode(Payloads.toJson(message.getAttachments()), "UTF-8"), encoded);
+        assertEquals(Payloads.toJson(message.getAttachments()),
+                URLDecoder.decode(encoded.substring("payload=".length()), StandardCharsets.UTF_8.name()));
+    }
+}
@@ -0,0 +1,171 @@
+package jenkins.plugins.slack.workflow;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.model.Result;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.payload.SlackMessage;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Follows the stages of real Pipeline runs.
+ */
+public class LiveStatusIntegrationTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    private static SlackService slackService;
+
+    @Test
+    public void stagesOfTheRunAreListed() throws Exception {
+        slackService = mock(SlackService.class);
+        when(slackService.updateAsync(any(String.class), any(String.class), any(SlackMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "live");
+        job.setDefinition(new CpsFlowDefinition("followStages()\n"
+                + "stage('Build') { echo 'building' }\n"
+                + "parallel(unit: { echo 'unit' }, lint: { echo 'lint' })\n"
+                + "stage('Deploy') { throw new IllegalStateException('boom') }\n", false));
+
+        jenkinsRule.assertBuildStatus(Result.FAILURE, job.scheduleBuild2(0).get());
+
+        ArgumentCaptor<SlackMessage> messages = ArgumentCaptor.forClass(SlackMessage.class);
+        verify(slackService, atLeastOnce()).updateAsync(eq("C123"), eq("1503435956.000247"), messages.capture());
+        List<SlackMessage> sent = messages.getAllValues();
+        assertEquals(SlackMessage.colored("Build #1\n- Build: done\n- Deploy: failed\nFinished with errors", "danger"),
+                sent.get(sent.size() - 1));
+    }
+
+    @Test
+    public void slackSendKeepsItsMessageAboveTheStages() throws Exception {
+        List<SlackMessage> updates = new CopyOnWriteArrayList<>();
+        slackService = mock(SlackService.class);
+        when(slackService.publishAsync(any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(true));
+        when(slackService.getResponseString()).thenReturn("{\"ok\":true,\"channel\":\"C123\",\"ts\":\"1503435956.000247\"}");
+        when(slackService.updateAsync(any(String.class), any(String.class), any(SlackMessage.class))).thenAnswer(invocation -> {
+            updates.add((SlackMessage) invocation.getArguments()[2]);
+            return CompletableFuture.completedFuture(true);
+        });
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "slackSend");
+        job.setDefinition(new CpsFlowDefinition("slackSendToMock(message: 'Deploying to staging', token: 'token',"
+                + " liveStatus: true, liveStatusIntervalSeconds: 1)\n"
+                + "stage('Build') { echo 'building' }\n", false));
+
+        jenkinsRule.buildAndAssertSuccess(job);
+
+        SlackMessage expected = SlackMessage.colored("Deploying to staging\n- Build: done\nFinished", "good");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!updates.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(expected, updates.get(updates.size() - 1));
+    }
+
+    /**
+     * slackSend posting through the mocked service.
+     */
+    public static final class SlackSendToMockStep extends SlackSendStep {
+
+        @DataBoundConstructor
+        public SlackSendToMockStep() {
+        }
+
+        @Override
+        public StepExecution start(StepContext context) {
+            return new Execution(this, context);
+        }
+
+        private static final class Execution extends SlackSendStepExecution {
+            private static final long serialVersionUID = 1L;
+
+            Execution(SlackSendStep step, StepContext context) {
+                super(step, context);
+            }
+
+            @Override
+            SlackService getSlackService(String baseUrl, String team, boolean botUser, String channel,
+                                         boolean replyBroadcast, String populatedToken) {
+                return slackService;
+            }
+        }
+
+        @TestExtension
+        public static final class DescriptorImpl extends SlackSendStep.DescriptorImpl {
+
+            @Override
+            public String getFunctionName() {
+                return "slackSendToMock";
+            }
+        }
+    }
+
+    /**
+     * Follows the stages of the run with edits sent right away.
+     */
+    public static final class FollowStagesStep extends Step {
+
+        @DataBoundConstructor
+        public FollowStagesStep() {
+        }
+
+        @Override
+        public StepExecution start(StepContext context) {
+            return new Execution(context);
+        }
+
+        private static final class Execution extends StepExecution {
+            private static final long serialVersionUID = 1L;
+
+            Execution(StepContext context) {
+                super(context);
+            }
+
+            @Override
+            public boolean start() throws Exception {
+                FlowNode node = getContext().get(FlowNode.class);
+                node.getExecution().addListener(new LiveStatus(slackService, "C123", "1503435956.000247",
+                        "Build #1", null, "#439FE0", 1, (task, delay) -> task.run(), () -> 0L));
+                getContext().onSuccess(null);
+                return true;
+            }
+        }
+
+        @TestExtension
+        public static final class DescriptorImpl extends StepDescriptor {
+
+            @Override
+            public Set<? extends Class<?>> getRequiredContext() {
+                return ImmutableSet.of(FlowNode.class);
+            }
+
+            @Override
+            public String getFunctionName() {
+                return "followStages";
+            }
+        }
+    }
+}
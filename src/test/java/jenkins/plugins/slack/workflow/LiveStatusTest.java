@@ -0,0 +1,134 @@
+package jenkins.plugins.slack.workflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.payload.Attachment;
+import jenkins.plugins.slack.payload.SlackMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LiveStatusTest {
+
+    private SlackService slackService;
+    private final List<Long> delays = new ArrayList<>();
+    private final List<Runnable> tasks = new ArrayList<>();
+    private long now;
+    private LiveStatus liveStatus;
+
+    @Before
+    public void setUp() {
+        slackService = mock(SlackService.class);
+        when(slackService.updateAsync(any(String.class), any(String.class), any(SlackMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        liveStatus = new LiveStatus(slackService, "C123", "1503435956.000247", "Build #1", null, "#439FE0", 10,
+                (task, delay) -> {
+                    tasks.add(task);
+                    delays.add(delay);
+                }, () -> now);
+    }
+
+    @Test
+    public void rendersTheStagesInOrder() {
+        liveStatus.stageStarted("3", "Build");
+        liveStatus.stageStarted("9", "Test");
+        liveStatus.stageEnded("3", false);
+        liveStatus.stageStarted("15", "Deploy");
+        liveStatus.stageEnded("9", true);
+
+        assertEquals(SlackMessage.colored("Build #1\n- Build: done\n- Test: failed\n- Deploy: running", "#439FE0"),
+                liveStatus.render());
+    }
+
+    @Test
+    public void colorsTheMessageWhenTheRunFinishes() {
+        liveStatus.stageStarted("3", "Build");
+        liveStatus.stageEnded("3", true);
+        liveStatus.finished(true);
+
+        assertEquals(SlackMessage.colored("Build #1\n- Build: failed\nFinished with errors", "danger"),
+                liveStatus.render());
+    }
+
+    @Test
+    public void keepsTheAttachmentsOfThePostedMessage() {
+        List<Attachment> attachments = Collections.singletonList(new Attachment().set("title", "Release notes"));
+        LiveStatus withAttachments = new LiveStatus(slackService, "C123", "1503435956.000247", "Deploying",
+                attachments, "#439FE0", 10, (task, delay) -> { }, () -> now);
+        withAttachments.stageStarted("3", "Build");
+
+        assertEquals(new SlackMessage("Deploying\n- Build: running", attachments, "#439FE0"), withAttachments.render());
+    }
+
+    @Test
+    public void coalescesChangesWithinTheInterval() {
+        liveStatus.stageStarted("3", "Build");
+        assertEquals(1, tasks.size());
+        assertEquals(0L, (long) delays.get(0));
+        runScheduled();
+        verify(slackService, times(1)).updateAsync(eq("C123"), eq("1503435956.000247"), any(SlackMessage.class));
+
+        now = 4000;
+        liveStatus.stageEnded("3", false);
+        liveStatus.stageStarted("9", "Test");
+        liveStatus.finished(false);
+        assertEquals(1, tasks.size());
+        assertEquals(6000L, (long) delays.get(0));
+        verify(slackService, times(1)).updateAsync(any(String.class), any(String.class), any(SlackMessage.class));
+
+        now = 10000;
+        runScheduled();
+        ArgumentCaptor<SlackMessage> message = ArgumentCaptor.forClass(SlackMessage.class);
+        verify(slackService, times(2)).updateAsync(eq("C123"), eq("1503435956.000247"), message.capture());
+        assertEquals(SlackMessage.colored("Build #1\n- Build: done\n- Test: running\nFinished", "good"),
+                message.getValue());
+    }
+
+    @Test
+    public void sendsOneEditAtATime() {
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+        when(slackService.updateAsync(any(String.class), any(String.class), any(SlackMessage.class)))
+                .thenReturn(first, CompletableFuture.completedFuture(true));
+        liveStatus.stageStarted("3", "Build");
+        runScheduled();
+
+        now = 20000;
+        liveStatus.stageEnded("3", false);
+        liveStatus.finished(false);
+        assertEquals("no edit is scheduled while the first one is being sent", 0, tasks.size());
+
+        first.complete(true);
+        assertEquals(1, tasks.size());
+        runScheduled();
+        ArgumentCaptor<SlackMessage> message = ArgumentCaptor.forClass(SlackMessage.class);
+        verify(slackService, times(2)).updateAsync(eq("C123"), eq("1503435956.000247"), message.capture());
+        assertEquals(SlackMessage.colored("Build #1\n- Build: done\nFinished", "good"), message.getValue());
+    }
+
+    @Test
+    public void ignoresTheEndOfUnknownStages() {
+        liveStatus.stageEnded("3", false);
+
+        assertEquals(0, tasks.size());
+        verify(slackService, never()).updateAsync(any(String.class), any(String.class), any(SlackMessage.class));
+    }
+
+    private void runScheduled() {
+        List<Runnable> scheduled = new ArrayList<>(tasks);
+        tasks.clear();
+        delays.clear();
+        scheduled.forEach(Runnable::run);
+    }
+}
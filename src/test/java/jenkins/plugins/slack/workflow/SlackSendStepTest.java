@@ -1,18 +1,26 @@
 package jenkins.plugins.slack.workflow;
 
+import hudson.AbortException;
 import hudson.model.Item;
 import hudson.model.Project;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import jenkins.model.Jenkins;
 import jenkins.plugins.slack.CredentialsObtainer;
+import jenkins.plugins.slack.PublishResult;
 import jenkins.plugins.slack.SlackNotifier;
 import jenkins.plugins.slack.SlackService;
+import jenkins.plugins.slack.payload.Attachment;
+import jenkins.plugins.slack.payload.SlackMessage;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.commons.io.IOUtils;
@@ -26,13 +34,17 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -70,6 +82,7 @@ public class SlackSendStepTest {
         PowerMockito.when(Jenkins.getInstance()).thenReturn(jenkins);
         when(taskListenerMock.getLogger()).thenReturn(printStreamMock);
         when(stepContextMock.get(TaskListener.class)).thenReturn(taskListenerMock);
+        when(slackServiceMock.publishAsync(any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(false));
     }
 
     @Test
@@ -98,11 +111,11 @@ public class SlackSendStepTest {
         doNothing().when(printStreamMock).println();
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
-        when(slackServiceMock.publish(anyString(), anyString())).thenReturn(true);
+        when(slackServiceMock.publishAsync(any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(true));
 
-        stepExecution.run();
+        stepExecution.send().join();
         verify(stepExecution, times(1)).getSlackService("baseUrl/", "teamDomain", true, "channel", false, token);
-        verify(slackServiceMock, times(1)).publish("message", "good");
+        verify(slackServiceMock, times(1)).publishAsync(SlackMessage.colored("message", "good"));
     }
 
     @Test
@@ -117,7 +130,6 @@ public class SlackSendStepTest {
         attachments.add(jsonObject);
         step.setAttachments(attachments.toString());
         SlackSendStep.SlackSendStepExecution stepExecution = spy(new SlackSendStep.SlackSendStepExecution(step, stepContextMock));
-        ((JSONObject) attachments.get(0)).put("fallback", "message");
 
         when(Jenkins.get()).thenReturn(jenkins);
 
@@ -128,9 +140,14 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
-        verify(slackServiceMock, times(0)).publish("message", "");
-        verify(slackServiceMock, times(1)).publish("message", attachments, "");
+        stepExecution.send().join();
+        verify(slackServiceMock, times(0)).publishAsync(SlackMessage.colored("message", ""));
+        Attachment expectedAttachment = new Attachment()
+                .setFallback("message")
+                .set("title", "Title of the message")
+                .set("author_name", "Name of the author")
+                .set("author_icon", "Avatar for author");
+        verify(slackServiceMock, times(1)).publishAsync(new SlackMessage("message", Arrays.asList(expectedAttachment), ""));
 
     }
 
@@ -156,17 +173,15 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
-        verify(slackServiceMock, times(0)).publish("message", "");
+        stepExecution.send().join();
+        verify(slackServiceMock, times(0)).publishAsync(SlackMessage.colored("message", ""));
 
-        JSONArray expectedAttachments = new JSONArray();
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("title", "Title of the message");
-        jsonObject.put("author_name", "Name of the author");
-        jsonObject.put("author_icon", "Avatar for author");
-        jsonObject.put("fallback", "message");
-        expectedAttachments.add(jsonObject);
-        verify(slackServiceMock, times(1)).publish("message", expectedAttachments, "");
+        Attachment expectedAttachment = new Attachment()
+                .setFallback("message")
+                .set("title", "Title of the message")
+                .set("author_name", "Name of the author")
+                .set("author_icon", "Avatar for author");
+        verify(slackServiceMock, times(1)).publishAsync(new SlackMessage("message", Arrays.asList(expectedAttachment), ""));
     }
 
     @Test
@@ -193,9 +208,9 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
+        stepExecution.send().join();
         verify(stepExecution, times(1)).getSlackService("globalBaseUrl", "globalTeamDomain", false, "globalChannel", false, "token2");
-        verify(slackServiceMock, times(1)).publish("message", "");
+        verify(slackServiceMock, times(1)).publishAsync(SlackMessage.colored("message", ""));
     }
 
 
@@ -221,11 +236,11 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
+        stepExecution.send().join();
 
         verify(stepExecution, times(1)).getSlackService("globalBaseUrl", "globalTeamDomain",
                 false, "globalChannel", false, "runcredentials");
-        verify(slackServiceMock, times(1)).publish("message", "");
+        verify(slackServiceMock, times(1)).publishAsync(SlackMessage.colored("message", ""));
     }
 
     @Test
@@ -253,9 +268,9 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
+        stepExecution.send().join();
         verify(stepExecution, times(1)).getSlackService("globalBaseUrl", "globalTeamDomain", false, "globalChannel", true, "token");
-        verify(slackServiceMock, times(1)).publish("message", "");
+        verify(slackServiceMock, times(1)).publishAsync(SlackMessage.colored("message", ""));
     }
 
     @Test
@@ -275,8 +290,8 @@ public class SlackSendStepTest {
 
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
-        stepExecution.run();
-        verify(slackServiceMock, times(1)).publish("message", "");
+        stepExecution.send().join();
+        verify(slackServiceMock, times(1)).publishAsync(SlackMessage.colored("message", ""));
     }
 
     @Test
@@ -306,9 +321,9 @@ public class SlackSendStepTest {
                 this.getClass().getResourceAsStream("response.json")
         );
         when(slackServiceMock.getResponseString()).thenReturn(savedResponse);
-        when(slackServiceMock.publish(anyString(), anyString())).thenReturn(true);
+        when(slackServiceMock.publishAsync(any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(true));
 
-        SlackResponse response = stepExecution.run();
+        SlackResponse response = stepExecution.send().join();
         String expectedId = "F4KE1DABC";
         String expectedTs = "1543931401.000500";
         String expectedThreadId = "F4KE1DABC:1543931401.000500";
@@ -343,12 +358,163 @@ public class SlackSendStepTest {
         when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
 
         when(slackServiceMock.getResponseString()).thenReturn(null);
-        when(slackServiceMock.publish(anyString(), anyString())).thenReturn(true);
+        when(slackServiceMock.publishAsync(any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(true));
 
-        SlackResponse response = stepExecution.run();
+        SlackResponse response = stepExecution.send().join();
         assertNotNull(response);
         assertNull(response.getChannelId());
         assertNull(response.getTs());
         assertNull(response.getThreadId());
     }
+
+    @Test
+    public void startCompletesTheStepWhenSlackAnswers() throws Exception {
+        CompletableFuture<Boolean> published = new CompletableFuture<>();
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(published);
+
+        assertFalse(stepExecution.start());
+        verify(stepContextMock, never()).onSuccess(any());
+
+        published.complete(true);
+        verify(stepContextMock, times(1)).onSuccess(any(SlackResponse.class));
+    }
+
+    @Test
+    public void stopFailsTheStepWithoutWaitingForSlack() throws Exception {
+        CompletableFuture<Boolean> published = new CompletableFuture<>();
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(published);
+        Exception cause = new InterruptedException();
+
+        stepExecution.start();
+        stepExecution.stop(cause);
+        published.complete(true);
+
+        verify(stepContextMock, times(1)).onFailure(cause);
+        verify(stepContextMock, never()).onSuccess(any());
+    }
+
+    @Test
+    public void stopCancelsThePost() throws Exception {
+        CompletableFuture<Boolean> published = new CompletableFuture<>();
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(published);
+
+        stepExecution.start();
+        stepExecution.stop(new InterruptedException());
+
+        assertTrue(published.isCancelled());
+    }
+
+    @Test
+    public void stopBeforeTheStepRanSendsNothing() throws Exception {
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(new CompletableFuture<>());
+        List<Runnable> queued = new ArrayList<>();
+        doReturn((Executor) queued::add).when(stepExecution).backgroundExecutor();
+        Exception cause = new InterruptedException();
+
+        stepExecution.start();
+        stepExecution.stop(cause);
+        queued.forEach(Runnable::run);
+
+        verify(slackServiceMock, never()).publishAsync(any(SlackMessage.class));
+        verify(stepContextMock, times(1)).onFailure(any());
+        verify(stepContextMock, times(1)).onFailure(cause);
+    }
+
+    @Test
+    public void resumeAfterRestartFailsTheStep() {
+        SlackSendStep.SlackSendStepExecution stepExecution = new SlackSendStep.SlackSendStepExecution(new SlackSendStep(), stepContextMock);
+
+        stepExecution.onResume();
+
+        verify(stepContextMock, times(1)).onFailure(any(AbortException.class));
+    }
+
+    @Test
+    public void timestampUpdatesTheMessage() throws Exception {
+        SlackSendStep step = new SlackSendStep();
+        step.setMessage("message");
+        step.setChannel("C0123");
+        step.setTimestamp("1528317530.000100");
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(step, CompletableFuture.completedFuture(true));
+        when(slackServiceMock.updateAsync(anyString(), anyString(), any(SlackMessage.class))).thenReturn(CompletableFuture.completedFuture(true));
+
+        stepExecution.send().join();
+
+        verify(slackServiceMock, times(1)).updateAsync("C0123", "1528317530.000100", SlackMessage.colored("message", ""));
+        verify(slackServiceMock, never()).publishAsync(any(SlackMessage.class));
+    }
+
+    @Test
+    public void replyToPostsToTheThreadOfTheResponse() throws Exception {
+        SlackSendStep step = new SlackSendStep();
+        step.setMessage("message");
+        step.setChannel("general");
+        step.setReplyTo(new SlackResponse(new org.json.JSONObject("{\"channel\":\"C0123\",\"ts\":\"1528317530.000100\"}")));
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(step, CompletableFuture.completedFuture(true));
+
+        stepExecution.send().join();
+
+        verify(stepExecution, times(1)).getSlackService(anyString(), anyString(), anyBoolean(),
+                eq("C0123:1528317530.000100"), anyBoolean(), anyString());
+    }
+
+    @Test
+    public void replyToNeedsTheResponseOfABotUser() throws Exception {
+        SlackSendStep step = new SlackSendStep();
+        step.setMessage("message");
+        step.setReplyTo(new SlackResponse());
+        SlackSendStep.SlackSendStepExecution stepExecution = executionPublishingTo(step, CompletableFuture.completedFuture(true));
+
+        assertNull(stepExecution.send().join());
+        verify(slackServiceMock, never()).publishAsync(any(SlackMessage.class));
+    }
+
+    @Test
+    public void batchSendsEveryMessageInOneCall() throws Exception {
+        SlackSendBatchStep step = new SlackSendBatchStep();
+        step.setColor("good");
+        Map<String, Object> second = new HashMap<>();
+        second.put("message", "second");
+        second.put("color", "danger");
+        step.setMessages(Arrays.asList("first", second));
+        SlackSendBatchStep.SlackSendBatchStepExecution stepExecution = spy(new SlackSendBatchStep.SlackSendBatchStepExecution(step, stepContextMock));
+        when(Jenkins.get()).thenReturn(jenkins);
+        PowerMockito.when(CredentialsObtainer.getTokenToUse(anyString(), any(Item.class), anyString())).thenReturn("token");
+        when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
+        List<SlackMessage> expected = Arrays.asList(SlackMessage.colored("first", "good"), SlackMessage.colored("second", "danger"));
+        when(slackServiceMock.publishAll(expected)).thenReturn(CompletableFuture.completedFuture(Arrays.asList(
+                new PublishResult(true, "{\"channel\":\"C1\",\"ts\":\"1.1\"}"), new PublishResult(false, null))));
+
+        List<SlackResponse> responses = stepExecution.sendAll().join();
+
+        assertEquals(2, responses.size());
+        assertEquals("1.1", responses.get(0).getTs());
+        assertNull(responses.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchRejectsASingleMessage() {
+        new SlackSendBatchStep().setMessage("message");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchRejectsLiveStatus() {
+        new SlackSendBatchStep().setLiveStatus(true);
+    }
+
+    private SlackSendStep.SlackSendStepExecution executionPublishingTo(CompletableFuture<Boolean> published) throws Exception {
+        SlackSendStep step = new SlackSendStep();
+        step.setMessage("message");
+        return executionPublishingTo(step, published);
+    }
+
+    private SlackSendStep.SlackSendStepExecution executionPublishingTo(SlackSendStep step, CompletableFuture<Boolean> published) throws Exception {
+        SlackSendStep.SlackSendStepExecution stepExecution = spy(new SlackSendStep.SlackSendStepExecution(step, stepContextMock));
+        when(Jenkins.get()).thenReturn(jenkins);
+        PowerMockito.when(CredentialsObtainer.getTokenToUse(anyString(), any(Item.class), anyString())).thenReturn("token");
+        when(stepExecution.getSlackService(anyString(), anyString(), anyBoolean(), anyString(), anyBoolean(), anyString())).thenReturn(slackServiceMock);
+        when(slackServiceMock.publishAsync(any(SlackMessage.class))).thenReturn(published);
+        doReturn((Executor) Runnable::run).when(stepExecution).backgroundExecutor();
+        return stepExecution;
+    }
 }